@@ -0,0 +1,80 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import static js.base.Tools.*;
+
+import js.guiapp.KeyboardShortcutManager;
+import js.json.JSMap;
+
+/**
+ * Parsing a keyboard shortcut registry
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class KeyboardShortcutBenchmark {
+
+  @Param({ "50", "500" })
+  public int operations;
+
+  @Setup
+  public void setup() {
+    // Give each operation a distinct combination of key and modifiers, so no
+    // conflicts are reported
+    String[] flags = { "", "a", "c", "m", "s", "ac", "am", "cm", "acm", "acms" };
+    JSMap registry = map();
+    for (int i = 0; i < operations; i++) {
+      JSMap entry = map();
+      int keyIndex = i / flags.length;
+      String code;
+      if (keyIndex < 26)
+        code = Character.toString((char) ('A' + keyIndex));
+      else
+        code = "F" + (keyIndex - 26 + 1);
+      entry.put("code", code);
+      entry.put("flags", flags[i % flags.length]);
+      registry.put("operation_" + i, entry);
+    }
+    mRegistryText = registry.toString();
+  }
+
+  @Benchmark
+  public KeyboardShortcutManager parseRegistry() {
+    // Include the parsing of the registry's JSON text, as it would be read
+    // from a file
+    KeyboardShortcutManager.construct(new JSMap(mRegistryText));
+    return KeyboardShortcutManager.sharedInstance();
+  }
+
+  private String mRegistryText;
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.JPanel;
+
+import js.widget.LayoutNode;
+import js.widget.WidgetManager;
+
+/**
+ * Building and closing layouts of various sizes, constructing Swing components
+ * (which can be done without a display, as the JVM runs in headless mode), or
+ * using a headless WidgetManager
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LayoutBenchmark {
+
+  @Param({ "small", "medium", "huge" })
+  public String size;
+
+  @Setup
+  public void setup() {
+    int rows;
+    switch (size) {
+    case "small":
+      rows = 10;
+      break;
+    case "medium":
+      rows = 200;
+      break;
+    default:
+      rows = 10000;
+      break;
+    }
+    mIds = new String[rows];
+    mLabels = new String[rows];
+    for (int i = 0; i < rows; i++) {
+      mIds[i] = "widget_" + i;
+      mLabels[i] = "Label " + i;
+    }
+  }
+
+  /**
+   * Build the layout's Swing components, and lay them out within a panel
+   */
+  @Benchmark
+  public JPanel buildSwing() {
+    WidgetManager m = new WidgetManager();
+    JPanel container = new JPanel();
+    m.setPendingContainer(container);
+    buildLayout(m);
+    return container;
+  }
+
+  /**
+   * Build the layout's tree of LayoutNodes, without any Swing components
+   */
+  @Benchmark
+  public LayoutNode buildHeadless() {
+    WidgetManager m = new WidgetManager().setHeadless();
+    buildLayout(m);
+    return m.layoutTree();
+  }
+
+  private void buildLayout(WidgetManager m) {
+    m.columns(".x").open("root");
+    for (int i = 0; i < mIds.length; i++) {
+      // Start a new group periodically, to include some nested grids
+      if (i % GROUP_SIZE == 0) {
+        if (i != 0)
+          m.close("group");
+        m.addHeader("Group " + (i / GROUP_SIZE));
+        m.spanx().columns(".x").open("group");
+      }
+      String id = mIds[i];
+      m.label(mLabels[i]).addLabel();
+      switch (i % 4) {
+      case 0:
+        m.defaultVal("text").addText(id);
+        break;
+      case 1:
+        m.label("Enabled").addToggleButton(id);
+        break;
+      case 2:
+        m.min(0).max(1000).defaultVal(i % 1000).addSpinner(id);
+        break;
+      default:
+        m.min(0.0).max(1.0).defaultVal(0.5).addSlider(id);
+        break;
+      }
+    }
+    m.close("group");
+    m.close("root");
+    m.finish();
+  }
+
+  private static final int GROUP_SIZE = 25;
+
+  private String[] mIds;
+  private String[] mLabels;
+}
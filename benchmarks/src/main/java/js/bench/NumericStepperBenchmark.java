@@ -0,0 +1,94 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import js.widget.NumericStepper;
+
+/**
+ * NumericStepper conversions between values and internal units, and
+ * formatting of values
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumericStepperBenchmark {
+
+  @Setup
+  public void setup() {
+    mIntStepper = new NumericStepper(false, 50, -1000, 1000, 1);
+    mFloatStepper = new NumericStepper(true, 0.5f, 0f, 10f, 0.1f);
+  }
+
+  @Benchmark
+  public int intToInternalUnits() {
+    return mIntStepper.toInternalUnits(nextInt());
+  }
+
+  @Benchmark
+  public int intFromInternalUnits() {
+    return mIntStepper.intFromInternalUnits(nextInt());
+  }
+
+  @Benchmark
+  public int floatToInternalUnits() {
+    return mFloatStepper.toInternalUnits(nextInt() * 0.01f);
+  }
+
+  @Benchmark
+  public float floatFromInternalUnits() {
+    return mFloatStepper.floatFromInternalUnits(nextInt() & 127);
+  }
+
+  @Benchmark
+  public String formatInt() {
+    return mIntStepper.formatNumber(nextInt());
+  }
+
+  @Benchmark
+  public String formatFloat() {
+    return mFloatStepper.formatNumber(nextInt() * 0.01f);
+  }
+
+  /**
+   * Cycle through values within [-1000...1000]
+   */
+  private int nextInt() {
+    mCursor++;
+    if (mCursor > 1000)
+      mCursor = -1000;
+    return mCursor;
+  }
+
+  private NumericStepper mIntStepper;
+  private NumericStepper mFloatStepper;
+  private int mCursor;
+}
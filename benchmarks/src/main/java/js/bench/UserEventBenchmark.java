@@ -0,0 +1,94 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import js.geometry.IPoint;
+import js.guiapp.UserEvent;
+import js.guiapp.UserEventManager;
+import js.guiapp.UserOperation;
+
+/**
+ * Dispatching user events to the current operation and listener
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class UserEventBenchmark {
+
+  @Setup
+  public void setup() {
+    mManager = sharedManager();
+    mManager.setListener((e) -> mListenerCount++);
+    IPoint loc = new IPoint(100, 200);
+    mDownEvent = new UserEvent(UserEvent.CODE_DOWN, loc, loc, 0, null);
+    mWidgetEvent = UserEvent.widgetEvent("widget");
+  }
+
+  @Benchmark
+  public long dispatchMouseEvent() {
+    mManager.processUserEvent(mDownEvent);
+    return mListenerCount;
+  }
+
+  @Benchmark
+  public long dispatchWidgetEvent() {
+    mManager.processUserEvent(mWidgetEvent);
+    return mListenerCount;
+  }
+
+  /**
+   * The UserEventManager is a singleton, which can only be constructed once
+   */
+  private static synchronized UserEventManager sharedManager() {
+    if (!sConstructed) {
+      UserEventManager.construct(new ListeningOperation());
+      sConstructed = true;
+    }
+    return UserEventManager.sharedInstance();
+  }
+
+  private static boolean sConstructed;
+
+  private static final class ListeningOperation extends UserOperation implements UserEvent.Listener {
+    @Override
+    public void processUserEvent(UserEvent event) {
+      mEventCount++;
+    }
+
+    private long mEventCount;
+  }
+
+  private UserEventManager mManager;
+  private UserEvent mDownEvent;
+  private UserEvent mWidgetEvent;
+  private long mListenerCount;
+}
@@ -0,0 +1,132 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import js.widget.WidgetManager;
+
+/**
+ * Reading and writing widget values by id, with either Swing widgets (which
+ * can be constructed without a display, as the JVM runs in headless mode) or a
+ * headless WidgetManager's value holders
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class WidgetValueBenchmark {
+
+  @Param({ "swing", "headless" })
+  public String mode;
+
+  @Setup
+  public void setup() {
+    mTextIds = new String[COUNT];
+    mIntIds = new String[COUNT];
+    mSliderIds = new String[COUNT];
+    mBoolIds = new String[COUNT];
+    mStrings = new String[COUNT];
+    WidgetManager m = new WidgetManager();
+    if (mode.equals("headless"))
+      m.setHeadless();
+    m.columns(".x").open("root");
+    for (int i = 0; i < COUNT; i++) {
+      mTextIds[i] = "text_" + i;
+      mIntIds[i] = "int_" + i;
+      mSliderIds[i] = "slider_" + i;
+      mBoolIds[i] = "bool_" + i;
+      mStrings[i] = "value " + i;
+      m.label("Text").addLabel().addText(mTextIds[i]);
+      m.label("Int").addLabel().min(0).max(COUNT).addSpinner(mIntIds[i]);
+      m.label("Slider").addLabel().min(0).max(COUNT).addSlider(mSliderIds[i]);
+      m.label("Bool").addLabel().label("Bool").addToggleButton(mBoolIds[i]);
+    }
+    m.close("root");
+    m.finish();
+    mManager = m;
+  }
+
+  @Benchmark
+  public String readString() {
+    return mManager.vs(mTextIds[next()]);
+  }
+
+  @Benchmark
+  public void writeString() {
+    int i = next();
+    mManager.sets(mTextIds[i], mStrings[i]);
+  }
+
+  @Benchmark
+  public int readInt() {
+    return mManager.vi(mIntIds[next()]);
+  }
+
+  @Benchmark
+  public void writeInt() {
+    int i = next();
+    mManager.seti(mIntIds[i], i);
+  }
+
+  @Benchmark
+  public int readSliderInt() {
+    return mManager.vi(mSliderIds[next()]);
+  }
+
+  @Benchmark
+  public void writeSliderInt() {
+    int i = next();
+    mManager.seti(mSliderIds[i], i);
+  }
+
+  @Benchmark
+  public boolean readBoolean() {
+    return mManager.vb(mBoolIds[next()]);
+  }
+
+  @Benchmark
+  public void writeBoolean() {
+    int i = next();
+    mManager.setb(mBoolIds[i], (i & 1) != 0);
+  }
+
+  private int next() {
+    mCursor = (mCursor + 1) & (COUNT - 1);
+    return mCursor;
+  }
+
+  // Must be a power of two
+  private static final int COUNT = 1024;
+
+  private WidgetManager mManager;
+  private String[] mTextIds, mIntIds, mSliderIds, mBoolIds;
+  private String[] mStrings;
+  private int mCursor;
+}
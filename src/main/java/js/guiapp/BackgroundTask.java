@@ -0,0 +1,101 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import java.util.concurrent.Future;
+
+/**
+ * A periodic task (see SwingTaskManager) that is performed in two phases:
+ *
+ * <pre>
+ *
+ *    result = compute();      // on a background thread
+ *
+ *    apply(result);           // on the Swing event thread
+ *
+ * </pre>
+ *
+ * If successive runs overlap, and a newer run's result has already been
+ * applied, an older run's result is discarded
+ */
+public abstract class BackgroundTask<T> {
+
+  /**
+   * Perform the expensive part of the task. Called on a background thread, so
+   * must not access any Swing components. Long-running computations should
+   * poll cancelled() (or the thread's interrupted status)
+   */
+  public abstract T compute();
+
+  /**
+   * Apply the result of the computation. Called on the Swing event thread
+   */
+  public abstract void apply(T result);
+
+  /**
+   * Cancel this task: any computation in progress is interrupted, and no
+   * further runs (or applications of results) will occur
+   */
+  public final void cancel() {
+    mCancelled = true;
+    Future<?> f = mFuture;
+    if (f != null)
+      f.cancel(true);
+  }
+
+  public final boolean cancelled() {
+    return mCancelled;
+  }
+
+  // ------------------------------------------------------------------
+  // Bookkeeping for SwingTaskManager
+  // ------------------------------------------------------------------
+
+  final long nextRunNumber() {
+    return ++mRunCount;
+  }
+
+  final void setFuture(Future<?> future) {
+    mFuture = future;
+  }
+
+  /**
+   * Determine if a run's result should be applied, i.e. the task hasn't been
+   * cancelled, and no newer run's result has been applied
+   */
+  final boolean shouldApply(long runNumber) {
+    if (mCancelled || runNumber <= mLastAppliedRun)
+      return false;
+    mLastAppliedRun = runNumber;
+    return true;
+  }
+
+  private volatile boolean mCancelled;
+  private volatile Future<?> mFuture;
+  // Only accessed by the SwingTaskManager's scheduling thread
+  private long mRunCount;
+  // Only accessed by the Swing event thread
+  private long mLastAppliedRun;
+}
@@ -0,0 +1,148 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import static js.base.Tools.*;
+
+import js.base.BaseObject;
+import js.geometry.IRect;
+import js.json.JSMap;
+
+/**
+ * Rectangular regions of app panels that need repainting. Panels are
+ * identified by the bits of the GUIApp.REPAINT_xxx flags
+ */
+public final class DirtyRegions extends BaseObject {
+
+  /**
+   * Mark a region of one or more panels as needing a repaint
+   *
+   * @param panelFlags
+   *          a combination of REPAINT_xxx
+   */
+  public DirtyRegions add(int panelFlags, IRect rect) {
+    if (rect == null) {
+      addAll(panelFlags);
+      return this;
+    }
+    for (int bit = 0; bit < Integer.SIZE; bit++) {
+      if (0 == (panelFlags & (1 << bit)))
+        continue;
+      mDirtyFlags |= (1 << bit);
+      if (0 == (mEntireFlags & (1 << bit)))
+        mBounds[bit] = union(mBounds[bit], rect);
+    }
+    return this;
+  }
+
+  /**
+   * Mark the entirety of one or more panels as needing a repaint
+   */
+  public DirtyRegions addAll(int panelFlags) {
+    mDirtyFlags |= panelFlags;
+    mEntireFlags |= panelFlags;
+    for (int bit = 0; bit < Integer.SIZE; bit++)
+      if (0 != (panelFlags & (1 << bit)))
+        mBounds[bit] = null;
+    return this;
+  }
+
+  /**
+   * Merge the regions from another set, for those panels within panelFlags.
+   * Any of those panels that have no regions within the other set are marked
+   * as entirely dirty
+   */
+  public DirtyRegions merge(DirtyRegions other, int panelFlags) {
+    for (int bit = 0; bit < Integer.SIZE; bit++) {
+      int flag = 1 << bit;
+      if (0 == (panelFlags & flag))
+        continue;
+      IRect r = other.mBounds[bit];
+      if (r == null)
+        addAll(flag);
+      else
+        add(flag, r);
+    }
+    return this;
+  }
+
+  /**
+   * Get the REPAINT_xxx flags for panels that have some dirty region
+   */
+  public int flags() {
+    return mDirtyFlags;
+  }
+
+  public boolean isEmpty() {
+    return mDirtyFlags == 0;
+  }
+
+  /**
+   * Get the bounds of the dirty regions within a panel, or null if the entire
+   * panel is to be repainted (which includes the case where no regions were
+   * reported for it)
+   *
+   * @param panelFlag
+   *          a single REPAINT_xxx flag
+   */
+  public IRect clipBounds(int panelFlag) {
+    checkArgument(Integer.bitCount(panelFlag) == 1, "expected a single panel flag:", panelFlag);
+    return mBounds[Integer.numberOfTrailingZeros(panelFlag)];
+  }
+
+  public void clear() {
+    mDirtyFlags = 0;
+    mEntireFlags = 0;
+    for (int i = 0; i < mBounds.length; i++)
+      mBounds[i] = null;
+  }
+
+  private static IRect union(IRect a, IRect b) {
+    if (a == null)
+      return b;
+    int x0 = Math.min(a.x, b.x);
+    int y0 = Math.min(a.y, b.y);
+    int x1 = Math.max(a.x + a.width, b.x + b.width);
+    int y1 = Math.max(a.y + a.height, b.y + b.height);
+    return new IRect(x0, y0, x1 - x0, y1 - y0);
+  }
+
+  @Override
+  public JSMap toJson() {
+    JSMap m = map();
+    m.put("flags", Integer.toBinaryString(mDirtyFlags));
+    for (int bit = 0; bit < Integer.SIZE; bit++) {
+      if (0 == (mDirtyFlags & (1 << bit)))
+        continue;
+      IRect r = mBounds[bit];
+      m.put("" + bit, r == null ? "<all>" : r.toString());
+    }
+    return m;
+  }
+
+  private int mDirtyFlags;
+  private int mEntireFlags;
+  private final IRect[] mBounds = new IRect[Integer.SIZE];
+}
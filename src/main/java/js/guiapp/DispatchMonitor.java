@@ -0,0 +1,251 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import static js.base.Tools.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import js.base.BaseObject;
+import js.json.JSList;
+import js.json.JSMap;
+
+/**
+ * Measures how long the Swing event thread spends dispatching events to
+ * various handlers, and reports any stalls (dispatches that take longer than a
+ * threshold), including a sample of the event thread's stack at the time
+ *
+ * <pre>
+ *
+ * Usage:
+ *
+ *    long startTime = DispatchMonitor.sharedInstance().begin(category);
+ *    try {
+ *       ...dispatch...
+ *    } finally {
+ *       DispatchMonitor.sharedInstance().end(startTime);
+ *    }
+ *
+ * </pre>
+ *
+ * The monitor is disabled by default, in which case begin() and end() do
+ * nothing
+ */
+public final class DispatchMonitor extends BaseObject {
+
+  public static final String CATEGORY_USER_EVENT = "user_event";
+  public static final String CATEGORY_WIDGET_LISTENER = "widget_listener";
+  public static final String CATEGORY_SWING_TASK = "swing_task";
+
+  public static DispatchMonitor sharedInstance() {
+    return sSharedInstance;
+  }
+
+  private static final DispatchMonitor sSharedInstance = new DispatchMonitor();
+
+  private DispatchMonitor() {
+  }
+
+  // ------------------------------------------------------------------
+  // Configuration
+  // ------------------------------------------------------------------
+
+  public synchronized void setEnabled(boolean state) {
+    if (mEnabled == state)
+      return;
+    mEnabled = state;
+    if (state)
+      startWatchdog();
+    else
+      stopWatchdog();
+  }
+
+  public boolean enabled() {
+    return mEnabled;
+  }
+
+  /**
+   * Set the duration beyond which a dispatch is considered to be a stall
+   */
+  public synchronized void setStallThresholdMs(long thresholdMs) {
+    checkArgument(thresholdMs > 0, "bad threshold:", thresholdMs);
+    mStallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+    if (mEnabled) {
+      stopWatchdog();
+      startWatchdog();
+    }
+  }
+
+  // ------------------------------------------------------------------
+  // Timing dispatches
+  // ------------------------------------------------------------------
+
+  /**
+   * Start timing a dispatch; must be called from the Swing event thread
+   *
+   * @return start time to pass to end(), or zero if monitor is disabled
+   */
+  public long begin(String category) {
+    if (!mEnabled)
+      return 0;
+    long startTime = System.nanoTime();
+    // Nested dispatches are timed as well, but only the outermost one is
+    // examined for stalls
+    if (mDepth++ == 0) {
+      mEventThread = Thread.currentThread();
+      mActiveCategory = category;
+      mActiveStartTime = startTime;
+    }
+    mCategoryStack.add(category);
+    return startTime;
+  }
+
+  /**
+   * Stop timing a dispatch
+   *
+   * @param startTime
+   *          value returned by the corresponding begin() call
+   */
+  public void end(long startTime) {
+    if (startTime == 0 || mDepth == 0)
+      return;
+    long duration = System.nanoTime() - startTime;
+    String category = pop(mCategoryStack);
+    if (--mDepth == 0)
+      mActiveStartTime = 0;
+    synchronized (this) {
+      histogram(category).record(duration);
+      if (duration > mStallThresholdNanos)
+        mStallCounts.put(category, mStallCounts.getOrDefault(category, 0L) + 1);
+    }
+  }
+
+  public synchronized void reset() {
+    mHistograms.clear();
+    mStallCounts.clear();
+    mStallSamples.clear();
+  }
+
+  @Override
+  public synchronized JSMap toJson() {
+    JSMap m = map();
+    m.put("enabled", mEnabled);
+    m.put("stall_threshold_ms", TimeUnit.NANOSECONDS.toMillis(mStallThresholdNanos));
+    JSMap categories = map();
+    for (Map.Entry<String, LatencyHistogram> ent : mHistograms.entrySet()) {
+      JSMap c = ent.getValue().toJson();
+      c.put("stalls", mStallCounts.getOrDefault(ent.getKey(), 0L));
+      categories.put(ent.getKey(), c);
+    }
+    m.put("categories", categories);
+    JSList samples = list();
+    for (JSMap sample : mStallSamples)
+      samples.add(sample);
+    m.put("stall_samples", samples);
+    return m;
+  }
+
+  private LatencyHistogram histogram(String category) {
+    LatencyHistogram h = mHistograms.get(category);
+    if (h == null) {
+      h = new LatencyHistogram();
+      mHistograms.put(category, h);
+    }
+    return h;
+  }
+
+  // ------------------------------------------------------------------
+  // Watchdog, for sampling event thread while it is stalled
+  // ------------------------------------------------------------------
+
+  private void startWatchdog() {
+    mWatchdog = new ScheduledThreadPoolExecutor(1, (r) -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setDaemon(true);
+      return t;
+    });
+    long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), mStallThresholdNanos / 2);
+    mWatchdog.scheduleAtFixedRate(() -> checkForStall(), periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void stopWatchdog() {
+    if (mWatchdog == null)
+      return;
+    mWatchdog.shutdown();
+    mWatchdog = null;
+  }
+
+  private void checkForStall() {
+    long startTime = mActiveStartTime;
+    if (startTime == 0 || startTime == mSampledStartTime)
+      return;
+    long elapsed = System.nanoTime() - startTime;
+    if (elapsed <= mStallThresholdNanos)
+      return;
+    Thread eventThread = mEventThread;
+    String category = mActiveCategory;
+    mSampledStartTime = startTime;
+
+    JSList stack = list();
+    for (StackTraceElement elem : eventThread.getStackTrace())
+      stack.add(elem.toString());
+    JSMap sample = map();
+    sample.put("category", category);
+    sample.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    sample.put("time", System.currentTimeMillis());
+    sample.put("stack", stack);
+    synchronized (this) {
+      mStallSamples.add(sample);
+      while (mStallSamples.size() > MAX_STALL_SAMPLES)
+        mStallSamples.remove(0);
+    }
+  }
+
+  private static final int MAX_STALL_SAMPLES = 16;
+
+  private volatile boolean mEnabled;
+  private volatile long mStallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+  private ScheduledThreadPoolExecutor mWatchdog;
+
+  // These are only accessed by the event thread
+  private int mDepth;
+  private final List<String> mCategoryStack = arrayList();
+
+  // These are written by the event thread, and read by the watchdog
+  private volatile Thread mEventThread;
+  private volatile String mActiveCategory;
+  private volatile long mActiveStartTime;
+
+  // This is only accessed by the watchdog
+  private long mSampledStartTime;
+
+  private final Map<String, LatencyHistogram> mHistograms = treeMap();
+  private final Map<String, Long> mStallCounts = hashMap();
+  private final List<JSMap> mStallSamples = arrayList();
+}
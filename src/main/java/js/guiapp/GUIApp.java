@@ -40,6 +40,7 @@ import js.app.App;
 import js.app.AppOper;
 import js.base.BasePrinter;
 import js.data.AbstractData;
+import js.geometry.IRect;
 import js.graphics.Paint;
 import js.gui.gen.GuiAppConfig;
 import js.system.SystemUtil;
@@ -243,12 +244,79 @@ public abstract class GUIApp extends App {
   public static final int REPAINT_ALL = ~0;
 
   /**
-   * Trigger a repaint of various app components
+   * Trigger a repaint of various app components. If a repaint frame rate has
+   * been set, the repaint is deferred (and merged with any others) until the
+   * next frame
    *
    * @param repaintFlags
    *          a combination of REPAINT_xxx
    */
   public final void performRepaint(int repaintFlags) {
+    mDirtyRegions.addAll(repaintFlags);
+    scheduleRepaint(repaintFlags);
+  }
+
+  /**
+   * Trigger a repaint of a region of various app components
+   *
+   * @param repaintFlags
+   *          a combination of REPAINT_xxx
+   * @param region
+   *          bounds of region to repaint, in the coordinate system of the
+   *          component(s)
+   */
+  public final void performRepaint(int repaintFlags, IRect region) {
+    mDirtyRegions.add(repaintFlags, region);
+    scheduleRepaint(repaintFlags);
+  }
+
+  /**
+   * Trigger a repaint of those app components (or regions of them) affected by
+   * the current operation's handling of a user event
+   */
+  public final void performRepaint(UserEvent event) {
+    UserOperation oper = UserEventManager.sharedInstance().getOperation();
+    int repaintFlags = oper.repaintRequiredFlags(event);
+    if (repaintFlags == 0)
+      return;
+    mEventRegions.clear();
+    if (event.isWidget() && mWidgetManager != null)
+      mWidgetManager.addDirtyRegions(event.widgetIds(), mEventRegions);
+    oper.addDirtyRegions(event, mEventRegions);
+    mDirtyRegions.merge(mEventRegions, repaintFlags);
+    scheduleRepaint(repaintFlags);
+  }
+
+  private void scheduleRepaint(int repaintFlags) {
+    if (mRepaintScheduler != null)
+      mRepaintScheduler.request(repaintFlags);
+    else
+      performRepaintNow(repaintFlags);
+  }
+
+  /**
+   * Limit the rate at which performRepaint() actually repaints the app
+   * components; requests arriving within a frame are merged together. If zero,
+   * repaints are performed immediately (the default)
+   */
+  public final void setRepaintFrameRate(int framesPerSecond) {
+    if (mRepaintScheduler != null)
+      mRepaintScheduler.flush();
+    if (framesPerSecond == 0) {
+      mRepaintScheduler = null;
+      return;
+    }
+    mRepaintScheduler = new RepaintScheduler((flags) -> performRepaintNow(flags)).setFrameRate(framesPerSecond);
+  }
+
+  /**
+   * Get the repaint scheduler, or null if repaints are performed immediately
+   */
+  public final RepaintScheduler repaintScheduler() {
+    return mRepaintScheduler;
+  }
+
+  private void performRepaintNow(int repaintFlags) {
     // If there is no menu bar, create one
     createMenuBarIfNec();
 
@@ -262,12 +330,27 @@ public abstract class GUIApp extends App {
       contentPane().add(message);
       contentPane().revalidate();
     } else {
-      repaintPanels(repaintFlags);
+      repaintPanels(repaintFlags, mDirtyRegions);
     }
+    mDirtyRegions.clear();
   }
 
   public abstract void repaintPanels(int repaintFlags);
 
+  /**
+   * Repaint app components, optionally clipping each to the bounds of its dirty
+   * regions (see DirtyRegions.clipBounds()). Default ignores the regions and
+   * calls repaintPanels(repaintFlags)
+   */
+  public void repaintPanels(int repaintFlags, DirtyRegions regions) {
+    repaintPanels(repaintFlags);
+  }
+
+  private final DirtyRegions mDirtyRegions = new DirtyRegions();
+  private final DirtyRegions mEventRegions = new DirtyRegions();
+
+  private RepaintScheduler mRepaintScheduler;
+
   public String getAlertText() {
     return null;
   }
@@ -375,7 +458,11 @@ public abstract class GUIApp extends App {
   }
 
   /**
-   * Called every ~3 seconds on the Swing event thread. Default does nothing
+   * Called every ~3 seconds on the Swing event thread (see
+   * SwingTaskManager.DEFAULT_PERIOD_MS). Default does nothing.
+   * <p>
+   * If DispatchMonitor is enabled, this is a convenient place to dump its
+   * statistics; e.g. pr(DispatchMonitor.sharedInstance())
    */
   public void swingBackgroundTask() {
   }
@@ -0,0 +1,129 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import static js.base.Tools.*;
+
+import js.base.BaseObject;
+import js.json.JSMap;
+
+/**
+ * Histogram of durations (in nanoseconds), with log-linear buckets: each power
+ * of two is divided into 16 equal sub-buckets, so recorded values are accurate
+ * to within ~6%
+ */
+public final class LatencyHistogram extends BaseObject {
+
+  public void record(long nanos) {
+    if (nanos < 0)
+      nanos = 0;
+    mCounts[bucketIndex(nanos)]++;
+    mCount++;
+    mTotal += nanos;
+    mMax = Math.max(mMax, nanos);
+  }
+
+  public long count() {
+    return mCount;
+  }
+
+  public long max() {
+    return mMax;
+  }
+
+  public long mean() {
+    if (mCount == 0)
+      return 0;
+    return mTotal / mCount;
+  }
+
+  /**
+   * Get the (approximate) duration that the given percentage of recorded
+   * values do not exceed
+   */
+  public long percentile(double percent) {
+    checkArgument(percent >= 0 && percent <= 100, "bad percentile:", percent);
+    if (mCount == 0)
+      return 0;
+    long target = Math.max(1, (long) Math.ceil(mCount * percent / 100));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += mCounts[i];
+      if (cumulative >= target)
+        return Math.min(bucketUpperBound(i), mMax);
+    }
+    return mMax;
+  }
+
+  public void clear() {
+    for (int i = 0; i < BUCKET_COUNT; i++)
+      mCounts[i] = 0;
+    mCount = 0;
+    mTotal = 0;
+    mMax = 0;
+  }
+
+  /**
+   * Get summary, with durations expressed in microseconds
+   */
+  @Override
+  public JSMap toJson() {
+    JSMap m = map();
+    m.put("count", mCount);
+    m.put("mean_us", mean() / 1000);
+    m.put("p50_us", percentile(50) / 1000);
+    m.put("p99_us", percentile(99) / 1000);
+    m.put("max_us", mMax / 1000);
+    return m;
+  }
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT)
+      return (int) value;
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int shift = msb - SUB_BUCKET_BITS;
+    int mantissa = (int) (value >>> shift);
+    return (shift + 1) * SUB_BUCKET_COUNT + (mantissa - SUB_BUCKET_COUNT);
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT)
+      return index;
+    int group = index / SUB_BUCKET_COUNT;
+    int sub = index % SUB_BUCKET_COUNT;
+    int shift = group - 1;
+    long lowerBound = ((long) (SUB_BUCKET_COUNT + sub)) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final long[] mCounts = new long[BUCKET_COUNT];
+  private long mCount;
+  private long mTotal;
+  private long mMax;
+}
@@ -0,0 +1,126 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import static js.base.Tools.*;
+
+import java.util.function.IntConsumer;
+
+import javax.swing.Timer;
+
+import js.base.BaseObject;
+import js.json.JSMap;
+
+/**
+ * Accumulates repaint requests (combinations of GUIApp.REPAINT_xxx flags), and
+ * performs them at most once per display frame. Must be used from the Swing
+ * event thread
+ */
+public final class RepaintScheduler extends BaseObject {
+
+  public RepaintScheduler(IntConsumer repaintHandler) {
+    mHandler = checkNotNull(repaintHandler);
+    mTimer = new Timer(0, (e) -> flush());
+    mTimer.setRepeats(false);
+    setFrameRate(60);
+  }
+
+  /**
+   * Set the maximum number of repaints to perform per second
+   */
+  public RepaintScheduler setFrameRate(int framesPerSecond) {
+    checkArgument(framesPerSecond > 0, "bad frame rate:", framesPerSecond);
+    mFrameIntervalMs = Math.max(1, 1000 / framesPerSecond);
+    return this;
+  }
+
+  public int frameIntervalMs() {
+    return mFrameIntervalMs;
+  }
+
+  /**
+   * Request a repaint; it will be merged with any other requests received
+   * before the next frame
+   */
+  public void request(int repaintFlags) {
+    if (repaintFlags == 0)
+      return;
+    if (mPendingFlags != 0) {
+      mPendingFlags |= repaintFlags;
+      mCoalescedCount++;
+      return;
+    }
+    mPendingFlags = repaintFlags;
+    // Wait until a full frame interval has elapsed since the previous repaint
+    long delay = mFrameIntervalMs - (System.currentTimeMillis() - mLastFlushTime);
+    mTimer.setInitialDelay((int) Math.max(0, Math.min(delay, mFrameIntervalMs)));
+    mTimer.restart();
+  }
+
+  /**
+   * Perform any pending repaint immediately
+   */
+  public void flush() {
+    mTimer.stop();
+    int flags = mPendingFlags;
+    if (flags == 0)
+      return;
+    mPendingFlags = 0;
+    mLastFlushTime = System.currentTimeMillis();
+    mRepaintCount++;
+    mHandler.accept(flags);
+  }
+
+  /**
+   * Get the number of repaint requests that were merged into earlier ones
+   */
+  public long coalescedCount() {
+    return mCoalescedCount;
+  }
+
+  /**
+   * Get the number of repaints performed
+   */
+  public long repaintCount() {
+    return mRepaintCount;
+  }
+
+  @Override
+  public JSMap toJson() {
+    JSMap m = map();
+    m.put("frame_interval_ms", mFrameIntervalMs);
+    m.put("repaints", mRepaintCount);
+    m.put("coalesced", mCoalescedCount);
+    return m;
+  }
+
+  private final IntConsumer mHandler;
+  private final Timer mTimer;
+  private int mFrameIntervalMs;
+  private int mPendingFlags;
+  private long mLastFlushTime;
+  private long mCoalescedCount;
+  private long mRepaintCount;
+}
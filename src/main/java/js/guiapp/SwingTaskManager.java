@@ -27,26 +27,111 @@ package js.guiapp;
 import static js.base.Tools.*;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.SwingUtilities;
 
 import js.base.BaseObject;
+import js.json.JSMap;
 
 /**
- * Supports periodically calling tasks on Swing event thread
+ * Supports periodically calling tasks on Swing event thread.
+ * <p>
+ * Each task has its own period, initial delay, and jitter (a random amount, up
+ * to some maximum, added to each delay, so that tasks with similar periods
+ * don't all run at the same time). The tasks are driven by a hashed timing
+ * wheel, and those that become due on the same tick are run together in a
+ * single Swing event.
+ * <p>
+ * Expensive tasks can instead be added as BackgroundTasks, whose compute phase
+ * runs on a background thread pool (using virtual threads, if available), with
+ * only the apply phase run on the Swing event thread.
+ * <p>
+ * If back pressure is enabled, each task's next execution isn't scheduled
+ * until the previous one has completed on the Swing event thread; so if that
+ * thread falls behind, executions are skipped rather than piling up in its
+ * event queue
  */
 public class SwingTaskManager extends BaseObject {
 
+  public static final long DEFAULT_INITIAL_DELAY_MS = 1000;
+  public static final long DEFAULT_PERIOD_MS = 3000;
+
+  /**
+   * Add a task, with the default period and initial delay
+   */
   public SwingTaskManager addTask(Runnable task) {
+    return addTask(task, DEFAULT_PERIOD_MS, DEFAULT_INITIAL_DELAY_MS, 0);
+  }
+
+  /**
+   * Add a task
+   *
+   * @param periodMs
+   *          delay between successive executions
+   * @param initialDelayMs
+   *          delay before first execution
+   * @param jitterMs
+   *          maximum random amount to add to each delay
+   */
+  public SwingTaskManager addTask(Runnable task, long periodMs, long initialDelayMs, long jitterMs) {
+    assertMutable();
+    checkArgument(periodMs > 0 && initialDelayMs >= 0 && jitterMs >= 0, "bad schedule for task");
+    mTaskList.add(new ScheduledTask(task, null, periodMs, initialDelayMs, jitterMs));
+    return this;
+  }
+
+  /**
+   * Add a two-phase task
+   *
+   * @param periodMs
+   *          delay between the starts of successive executions
+   * @param initialDelayMs
+   *          delay before first execution
+   * @param jitterMs
+   *          maximum random amount to add to each delay
+   */
+  public SwingTaskManager addTask(BackgroundTask<?> task, long periodMs, long initialDelayMs, long jitterMs) {
     assertMutable();
-    mTaskList.add(task);
+    checkArgument(periodMs > 0 && initialDelayMs >= 0 && jitterMs >= 0, "bad schedule for task");
+    mTaskList.add(new ScheduledTask(null, checkNotNull(task), periodMs, initialDelayMs, jitterMs));
     return this;
   }
 
+  /**
+   * Specify whether back pressure is to be used (see class description)
+   */
+  public SwingTaskManager setBackPressure(boolean state) {
+    assertMutable();
+    mBackPressure = state;
+    return this;
+  }
+
+  /**
+   * Get the number of executions that were skipped, due to back pressure,
+   * because the Swing event thread couldn't keep up
+   */
+  public long skippedTicks() {
+    return mSkippedTicks.get();
+  }
+
+  @Override
+  public JSMap toJson() {
+    JSMap m = map();
+    m.put("tasks", mTaskList.size());
+    m.put("started", started());
+    m.put("back_pressure", mBackPressure);
+    m.put("skipped_ticks", skippedTicks());
+    return m;
+  }
+
   public void start() {
     assertMutable();
     mScheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
@@ -56,9 +141,10 @@ public class SwingTaskManager extends BaseObject {
         return t;
       }
     });
-    long delay = 3000;
-    mScheduledThreadPoolExecutor.scheduleWithFixedDelay(
-        () -> SwingUtilities.invokeLater(() -> backgroundTask()), 1000, delay, TimeUnit.MILLISECONDS);
+    mWheel = new TimingWheel<>(TICK_MS, SLOT_COUNT);
+    for (ScheduledTask task : mTaskList)
+      mWheel.schedule(task, task.initialDelayMs + jitter(task));
+    mScheduledThreadPoolExecutor.scheduleAtFixedRate(() -> tick(), TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
   }
 
   public void stop() {
@@ -66,23 +152,161 @@ public class SwingTaskManager extends BaseObject {
       return;
     mScheduledThreadPoolExecutor.shutdown();
     mScheduledThreadPoolExecutor = null;
+    if (mComputeExecutor != null) {
+      mComputeExecutor.shutdownNow();
+      mComputeExecutor = null;
+    }
+  }
+
+  /**
+   * Advance the timing wheel; called on the executor's thread
+   */
+  private void tick() {
+    List<ScheduledTask> dueTasks = arrayList();
+    synchronized (mWheel) {
+      mWheel.advance(dueTasks);
+    }
+    long currentTime = System.currentTimeMillis();
+    List<ScheduledTask> swingTasks = arrayList();
+    for (ScheduledTask task : dueTasks) {
+      // Once a background task is cancelled, drop it from the schedule
+      if (task.cancelled())
+        continue;
+      task.dueTime = currentTime;
+      if (task.backgroundTask != null)
+        startComputePhase(task, task.backgroundTask);
+      else
+        swingTasks.add(task);
+      if (!mBackPressure)
+        reschedule(task);
+    }
+    if (!swingTasks.isEmpty())
+      SwingUtilities.invokeLater(() -> backgroundTask(swingTasks));
+  }
+
+  private void reschedule(ScheduledTask task) {
+    synchronized (mWheel) {
+      mWheel.schedule(task, task.periodMs + jitter(task));
+    }
+  }
+
+  /**
+   * Called when a task's execution has completed (successfully or not)
+   */
+  private void taskCompleted(ScheduledTask task) {
+    if (!mBackPressure)
+      return;
+    long lateness = System.currentTimeMillis() - task.dueTime;
+    long skipped = lateness / task.periodMs;
+    if (skipped > 0) {
+      log("skipped", skipped, "tick(s) for task; lateness:", lateness);
+      mSkippedTicks.addAndGet(skipped);
+    }
+    if (!task.cancelled())
+      reschedule(task);
+  }
+
+  private static long jitter(ScheduledTask task) {
+    if (task.jitterMs == 0)
+      return 0;
+    return ThreadLocalRandom.current().nextLong(task.jitterMs + 1);
   }
 
-  private void backgroundTask() {
-    log("executing background task", System.currentTimeMillis());
-    for (Runnable r : mTaskList) {
+  private void backgroundTask(List<ScheduledTask> tasks) {
+    log("executing background tasks", System.currentTimeMillis(), "count:", tasks.size());
+    DispatchMonitor monitor = DispatchMonitor.sharedInstance();
+    for (ScheduledTask task : tasks) {
+      long startTime = monitor.begin(DispatchMonitor.CATEGORY_SWING_TASK);
       try {
-        r.run();
+        task.task.run();
       } catch (Throwable t) {
         pr("*** Caught exception in SwingTaskManager periodic background task:", INDENT, t);
         if (alert("always exiting")) {
           pr("Exiting immediately");
           System.exit(1);
         }
+      } finally {
+        monitor.end(startTime);
+        taskCompleted(task);
       }
     }
   }
 
+  // ------------------------------------------------------------------
+  // Two-phase tasks
+  // ------------------------------------------------------------------
+
+  private <T> void startComputePhase(ScheduledTask scheduledTask, BackgroundTask<T> task) {
+    long runNumber = task.nextRunNumber();
+    try {
+      task.setFuture(computeExecutor().submit(() -> performComputePhase(scheduledTask, task, runNumber)));
+    } catch (RejectedExecutionException e) {
+      // We've been stopped
+    }
+  }
+
+  private <T> void performComputePhase(ScheduledTask scheduledTask, BackgroundTask<T> task, long runNumber) {
+    if (task.cancelled())
+      return;
+    T result;
+    try {
+      result = task.compute();
+    } catch (Throwable t) {
+      if (!task.cancelled())
+        pr("*** Caught exception in SwingTaskManager background task compute phase:", INDENT, t);
+      taskCompleted(scheduledTask);
+      return;
+    }
+    SwingUtilities.invokeLater(() -> performApplyPhase(scheduledTask, task, runNumber, result));
+  }
+
+  private <T> void performApplyPhase(ScheduledTask scheduledTask, BackgroundTask<T> task, long runNumber,
+      T result) {
+    if (!task.shouldApply(runNumber)) {
+      log("discarding stale or cancelled result, run", runNumber);
+      taskCompleted(scheduledTask);
+      return;
+    }
+    DispatchMonitor monitor = DispatchMonitor.sharedInstance();
+    long startTime = monitor.begin(DispatchMonitor.CATEGORY_SWING_TASK);
+    try {
+      task.apply(result);
+    } catch (Throwable t) {
+      pr("*** Caught exception in SwingTaskManager background task apply phase:", INDENT, t);
+      if (alert("always exiting")) {
+        pr("Exiting immediately");
+        System.exit(1);
+      }
+    } finally {
+      monitor.end(startTime);
+      taskCompleted(scheduledTask);
+    }
+  }
+
+  private synchronized ExecutorService computeExecutor() {
+    if (mComputeExecutor == null)
+      mComputeExecutor = buildComputeExecutor();
+    return mComputeExecutor;
+  }
+
+  /**
+   * Construct an executor that uses virtual threads, if they are available
+   * (Java 21 or later); otherwise, a fixed pool of daemon threads
+   */
+  private static ExecutorService buildComputeExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // Fall through to use platform threads
+    }
+    int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    return Executors.newFixedThreadPool(threadCount, (r) -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
   private void assertMutable() {
     checkState(!started(), "already started");
   }
@@ -91,6 +315,36 @@ public class SwingTaskManager extends BaseObject {
     return mScheduledThreadPoolExecutor != null;
   }
 
+  private static final class ScheduledTask {
+    ScheduledTask(Runnable task, BackgroundTask<?> backgroundTask, long periodMs, long initialDelayMs,
+        long jitterMs) {
+      this.task = task;
+      this.backgroundTask = backgroundTask;
+      this.periodMs = periodMs;
+      this.initialDelayMs = initialDelayMs;
+      this.jitterMs = jitterMs;
+    }
+
+    boolean cancelled() {
+      return backgroundTask != null && backgroundTask.cancelled();
+    }
+
+    final Runnable task;
+    final BackgroundTask<?> backgroundTask;
+    final long periodMs;
+    final long initialDelayMs;
+    final long jitterMs;
+    // Time task most recently became due
+    volatile long dueTime;
+  }
+
+  private static final long TICK_MS = 50;
+  private static final int SLOT_COUNT = 256;
+
   private ScheduledThreadPoolExecutor mScheduledThreadPoolExecutor;
-  private List<Runnable> mTaskList = arrayList();
+  private TimingWheel<ScheduledTask> mWheel;
+  private ExecutorService mComputeExecutor;
+  private boolean mBackPressure;
+  private final AtomicLong mSkippedTicks = new AtomicLong();
+  private List<ScheduledTask> mTaskList = arrayList();
 }
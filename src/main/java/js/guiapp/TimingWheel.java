@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.guiapp;
+
+import static js.base.Tools.*;
+
+import java.util.List;
+
+/**
+ * A hashed timing wheel. Items are stored in a ring of slots, one per tick;
+ * an item whose delay exceeds a full revolution of the wheel also records the
+ * number of revolutions remaining. Not thread safe
+ */
+final class TimingWheel<T> {
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public TimingWheel(long tickMs, int slotCount) {
+    checkArgument(tickMs > 0 && slotCount > 0);
+    mTickMs = tickMs;
+    mSlots = new List[slotCount];
+    for (int i = 0; i < slotCount; i++)
+      mSlots[i] = arrayList();
+  }
+
+  public long tickMs() {
+    return mTickMs;
+  }
+
+  /**
+   * Add an item, to become due after a delay (rounded up to the next tick)
+   */
+  public void schedule(T item, long delayMs) {
+    long ticks = Math.max(1, (delayMs + mTickMs - 1) / mTickMs);
+    int slotCount = mSlots.length;
+    int slot = (int) ((mCursor + ticks) % slotCount);
+    mSlots[slot].add(new Entry<>(item, (ticks - 1) / slotCount));
+    mSize++;
+  }
+
+  /**
+   * Remove an item, if it has been scheduled
+   */
+  public boolean remove(T item) {
+    for (List<Entry<T>> slot : mSlots) {
+      for (int i = 0; i < slot.size(); i++) {
+        if (slot.get(i).item == item) {
+          slot.remove(i);
+          mSize--;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Advance the wheel by one tick, and append any items that have become due
+   * to a list
+   */
+  public void advance(List<T> dueItems) {
+    mCursor = (mCursor + 1) % mSlots.length;
+    List<Entry<T>> slot = mSlots[mCursor];
+    int dest = 0;
+    for (int i = 0; i < slot.size(); i++) {
+      Entry<T> ent = slot.get(i);
+      if (ent.rounds == 0) {
+        dueItems.add(ent.item);
+        mSize--;
+      } else {
+        ent.rounds--;
+        slot.set(dest++, ent);
+      }
+    }
+    while (slot.size() > dest)
+      slot.remove(slot.size() - 1);
+  }
+
+  private static final class Entry<T> {
+    Entry(T item, long rounds) {
+      this.item = item;
+      this.rounds = rounds;
+    }
+
+    final T item;
+    long rounds;
+  }
+
+  private final long mTickMs;
+  private final List<Entry<T>>[] mSlots;
+  private int mCursor;
+  private int mSize;
+}
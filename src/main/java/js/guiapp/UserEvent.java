@@ -23,6 +23,8 @@
  **/
 package js.guiapp;
 
+import java.util.List;
+
 import js.geometry.IPoint;
 import js.json.JSMap;
 
@@ -57,6 +59,18 @@ public final class UserEvent extends BaseObject {
     return new UserEvent(CODE_WIDGET, null, null, 0, widgetId);
   }
 
+  /**
+   * Construct a single widget event representing changes to several widgets
+   * (e.g., as the result of WidgetManager.endUpdate()). Its widgetId() is the
+   * first of these widgets' ids
+   */
+  public static UserEvent widgetBatchEvent(List<String> widgetIds) {
+    checkArgument(!widgetIds.isEmpty(), "no widget ids");
+    UserEvent event = new UserEvent(CODE_WIDGET, null, null, 0, widgetIds.get(0));
+    event.mWidgetIds = widgetIds;
+    return event;
+  }
+
   public UserEvent(int code, IPoint worldLocation, IPoint viewLocation, int modifierFlags, String widgetId) {
     mCode = code;
     mViewLocation = viewLocation;
@@ -78,6 +92,25 @@ public final class UserEvent extends BaseObject {
     return mWidgetId;
   }
 
+  /**
+   * Get the ids of all the widgets involved in a widget event
+   */
+  public List<String> widgetIds() {
+    if (mWidgetIds == null) {
+      checkState(isWidget(), "not a widget event");
+      mWidgetIds = arrayList();
+      mWidgetIds.add(mWidgetId);
+    }
+    return mWidgetIds;
+  }
+
+  /**
+   * Determine if this is a widget event involving more than one widget
+   */
+  public boolean isWidgetBatch() {
+    return isWidget() && widgetIds().size() > 1;
+  }
+
   public IPoint getViewLocation() {
     checkState(hasLocation(), "no view location");
     return mViewLocation;
@@ -99,6 +132,13 @@ public final class UserEvent extends BaseObject {
     return mCode == CODE_DRAG;
   }
 
+  /**
+   * Determine if event is a CODE_DRAG or CODE_MOVE event
+   */
+  public boolean isMotionVariant() {
+    return mCode == CODE_DRAG || mCode == CODE_MOVE;
+  }
+
   public boolean hasLocation() {
     return mViewLocation != null;
   }
@@ -131,6 +171,10 @@ public final class UserEvent extends BaseObject {
     return hasFlag(FLAG_CTRL | FLAG_SHIFT | FLAG_ALT | FLAG_META);
   }
 
+  public int getModifierFlags() {
+    return mModifierFlags;
+  }
+
   private boolean hasFlag(int f) {
     return 0 != (mModifierFlags & f);
   }
@@ -215,6 +259,7 @@ public final class UserEvent extends BaseObject {
   private final IPoint mWorldLocation, mViewLocation;
   private final int mModifierFlags;
   private final String mWidgetId;
+  private List<String> mWidgetIds;
 
   public boolean withLogging() {
     return mCode != CODE_DRAG && mCode != CODE_MOVE;
@@ -26,6 +26,8 @@ package js.guiapp;
 
 import static js.base.Tools.*;
 
+import javax.swing.SwingUtilities;
+
 import js.base.BaseObject;
 
 /**
@@ -88,12 +90,30 @@ public final class UserEventManager extends BaseObject implements UserEvent.List
 
   @Override
   public void processUserEvent(UserEvent event) {
+    if (mCoalesceMotionEvents) {
+      if (event.isMotionVariant()) {
+        deferMotionEvent(event);
+        return;
+      }
+      // Deliver any pending motion event first, to preserve the event ordering
+      flushMotionEvent();
+    }
+    dispatchUserEvent(event);
+  }
+
+  private void dispatchUserEvent(UserEvent event) {
     if (event.withLogging())
       log("processUserEvent:", event);
-    if (getOperation() instanceof UserEvent.Listener)
-      ((UserEvent.Listener) getOperation()).processUserEvent(event);
-    if (mListener != null)
-      mListener.processUserEvent(event);
+    DispatchMonitor monitor = DispatchMonitor.sharedInstance();
+    long startTime = monitor.begin(DispatchMonitor.CATEGORY_USER_EVENT);
+    try {
+      if (getOperation() instanceof UserEvent.Listener)
+        ((UserEvent.Listener) getOperation()).processUserEvent(event);
+      if (mListener != null)
+        mListener.processUserEvent(event);
+    } finally {
+      monitor.end(startTime);
+    }
   }
 
   /**
@@ -109,6 +129,7 @@ public final class UserEventManager extends BaseObject implements UserEvent.List
    */
   public void perform(UserOperation operation) {
     log("perform operation:", operation);
+    flushMotionEvent();
     if (operation.shouldBeEnabled()) {
       setOperation(operation);
       if (mListener != null)
@@ -116,6 +137,68 @@ public final class UserEventManager extends BaseObject implements UserEvent.List
     }
   }
 
+  // ------------------------------------------------------------------
+  // Coalescing motion events
+  // ------------------------------------------------------------------
+
+  /**
+   * Specify whether consecutive CODE_DRAG or CODE_MOVE events with the same
+   * modifier flags are to be merged, so that only the most recent one is
+   * delivered (once per turn of the Swing event loop). Other events are
+   * delivered immediately, after any pending motion event
+   */
+  public void setCoalesceMotionEvents(boolean state) {
+    if (!state)
+      flushMotionEvent();
+    mCoalesceMotionEvents = state;
+  }
+
+  public boolean coalesceMotionEvents() {
+    return mCoalesceMotionEvents;
+  }
+
+  /**
+   * Get the number of motion events that were discarded (i.e., replaced by a
+   * more recent one) while coalescing
+   */
+  public long coalescedEventCount() {
+    return mCoalescedEventCount;
+  }
+
+  private void deferMotionEvent(UserEvent event) {
+    UserEvent pending = mPendingMotionEvent;
+    if (pending != null) {
+      if (pending.getCode() == event.getCode() && pending.getModifierFlags() == event.getModifierFlags())
+        mCoalescedEventCount++;
+      else
+        flushMotionEvent();
+    }
+    mPendingMotionEvent = event;
+    if (!mFlushPending) {
+      mFlushPending = true;
+      SwingUtilities.invokeLater(() -> {
+        mFlushPending = false;
+        flushMotionEvent();
+      });
+    }
+  }
+
+  /**
+   * Deliver the pending motion event, if there is one
+   */
+  private void flushMotionEvent() {
+    UserEvent event = mPendingMotionEvent;
+    if (event == null)
+      return;
+    mPendingMotionEvent = null;
+    dispatchUserEvent(event);
+  }
+
+  private boolean mCoalesceMotionEvents;
+  private UserEvent mPendingMotionEvent;
+  private boolean mFlushPending;
+  private long mCoalescedEventCount;
+
   private final UserOperation mDefaultOperation;
 
   private UserEvent.Listener mListener;
@@ -98,6 +98,16 @@ public class UserOperation extends BaseObject implements Enableable {
     return ~0;
   }
 
+  /**
+   * Report the regions of the UI elements that need repainting following
+   * handling of a user event. Any element included in repaintRequiredFlags()
+   * for which no regions are reported is repainted entirely. For widget events,
+   * the regions reported by the widgets (see Widget.setDirtyRegionReporter())
+   * have already been added. Default reports nothing
+   */
+  public void addDirtyRegions(UserEvent event, DirtyRegions regions) {
+  }
+
   /**
    * Display any optional rendering associated with this operation. Default does
    * nothing
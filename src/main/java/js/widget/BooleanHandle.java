@@ -0,0 +1,53 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+/**
+ * A handle to a boolean-valued widget (e.g. a toggle button); see
+ * WidgetManager.booleanHandle()
+ */
+public final class BooleanHandle extends WidgetHandle {
+
+  BooleanHandle(Widget widget) {
+    super(widget);
+    checkValue(widget.readValue() instanceof Boolean, "a boolean");
+  }
+
+  public boolean vb() {
+    Boolean result = (Boolean) widget().readValue();
+    if (result == null)
+      result = false;
+    return result;
+  }
+
+  public boolean setb(boolean v) {
+    widget().writeValue(v);
+    return v;
+  }
+
+  public boolean toggle() {
+    return setb(!vb());
+  }
+}
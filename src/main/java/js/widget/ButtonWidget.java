@@ -33,6 +33,7 @@ class ButtonWidget extends Widget {
   public void writeValue(Object v) {
     String label = (String) v;
     jButton().setText(label);
+    valueChanged();
   }
 
   private JButton jButton() {
@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import javax.swing.Timer;
+
+/**
+ * Limits the rate at which a widget's events are delivered. An event is
+ * delivered immediately if enough time has elapsed since the previous one;
+ * otherwise, it is delivered once that time has elapsed, merged with any other
+ * events occurring in the meantime. Thus the most recent event is always
+ * delivered. Must be used from the Swing event thread
+ */
+final class EventThrottle {
+
+  public EventThrottle(int maxEventsPerSecond, Runnable delivery) {
+    checkArgument(maxEventsPerSecond > 0, "bad rate:", maxEventsPerSecond);
+    mIntervalMs = Math.max(1, 1000 / maxEventsPerSecond);
+    mDelivery = delivery;
+    mTimer = new Timer(mIntervalMs, (e) -> deliver());
+    mTimer.setRepeats(false);
+  }
+
+  /**
+   * Report an event
+   */
+  public void eventOccurred() {
+    // If a delivery is already scheduled, it will include this event
+    if (mTimer.isRunning())
+      return;
+    long elapsedMs = (System.nanoTime() - mLastDeliveryTime) / 1_000_000;
+    if (elapsedMs >= mIntervalMs) {
+      deliver();
+      return;
+    }
+    mTimer.setInitialDelay((int) (mIntervalMs - elapsedMs));
+    mTimer.start();
+  }
+
+  /**
+   * Deliver any event that is waiting, instead of waiting for the interval to
+   * elapse
+   */
+  public void flush() {
+    if (mTimer.isRunning()) {
+      mTimer.stop();
+      deliver();
+    }
+  }
+
+  private void deliver() {
+    mLastDeliveryTime = System.nanoTime();
+    mDelivery.run();
+  }
+
+  private final int mIntervalMs;
+  private final Runnable mDelivery;
+  private final Timer mTimer;
+  private long mLastDeliveryTime = System.nanoTime() - 1_000_000_000L;
+}
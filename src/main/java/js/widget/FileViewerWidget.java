@@ -0,0 +1,665 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+
+/**
+ * A read-only view of a text file, which may be very large (many gigabytes).
+ * <p>
+ * The file is memory mapped (in segments, as a single mapping is limited to
+ * 2GB). A background thread builds a sparse index of line offsets (the offset
+ * of every 64th line); the index is used to locate the lines that are visible,
+ * which are the only ones read and drawn. Searches are also performed in the
+ * background.
+ * <p>
+ * The widget's value is the path of the file being displayed (or null)
+ */
+class FileViewerWidget extends Widget {
+
+  public FileViewerWidget(String id, String path, int fontSize) {
+    setId(id);
+    mView = new FileView(WidgetManager.getFont(true, fontSize));
+    mScrollBar = new JScrollBar(JScrollBar.VERTICAL, 0, 1, 0, 1);
+    mScrollBar.addAdjustmentListener((e) -> mView.repaint());
+    mView.addMouseWheelListener((e) -> scrollBy(e.getWheelRotation() * WHEEL_LINES));
+    mProgressTimer = new Timer(PROGRESS_INTERVAL_MS, (e) -> updateLineCount());
+    JPanel container = new JPanel(new BorderLayout());
+    container.add(mView, BorderLayout.CENTER);
+    container.add(mScrollBar, BorderLayout.EAST);
+    setComponent(container);
+    if (path != null)
+      open(new File(path));
+  }
+
+  @Override
+  public String readValue() {
+    return mFile == null ? null : mFile.getPath();
+  }
+
+  @Override
+  public void writeValue(Object v) {
+    String path = (String) v;
+    open(path == null ? null : new File(path));
+  }
+
+  /**
+   * Display a file, or nothing if file is null
+   */
+  public void open(File file) {
+    close();
+    mFile = file;
+    if (file != null) {
+      mMapping = new Mapping(file);
+      mIndex = new LineIndex(mMapping);
+      Thread t = new Thread(() -> mIndex.build(), "FileViewerWidget index");
+      t.setDaemon(true);
+      t.start();
+      mProgressTimer.start();
+    }
+    mSelectedLine = -1;
+    updateLineCount();
+    mScrollBar.setValue(0);
+    valueChanged();
+  }
+
+  private void close() {
+    mProgressTimer.stop();
+    cancelSearch();
+    if (mIndex != null)
+      mIndex.cancel();
+    mIndex = null;
+    mMapping = null;
+    mFile = null;
+  }
+
+  /**
+   * Get the number of lines indexed so far
+   */
+  public int lineCount() {
+    return mIndex == null ? 0 : mIndex.lineCount();
+  }
+
+  /**
+   * Scroll so a line is visible, and select it
+   */
+  public void showLine(int line) {
+    if (line < 0 || line >= lineCount())
+      return;
+    mSelectedLine = line;
+    int top = mScrollBar.getValue();
+    int visible = mView.visibleLineCount();
+    if (line < top || line >= top + visible)
+      mScrollBar.setValue(Math.max(0, line - visible / 2));
+    mView.repaint();
+  }
+
+  private void scrollBy(int lines) {
+    mScrollBar.setValue(mScrollBar.getValue() + lines);
+  }
+
+  /**
+   * Called periodically while the index is being built
+   */
+  private void updateLineCount() {
+    int lines = lineCount();
+    mScrollBar.setMaximum(Math.max(1, lines));
+    mScrollBar.setVisibleAmount(Math.max(1, Math.min(lines, mView.visibleLineCount())));
+    mScrollBar.setBlockIncrement(Math.max(1, mView.visibleLineCount() - 1));
+    if (mIndex == null || mIndex.complete())
+      mProgressTimer.stop();
+    mView.repaint();
+  }
+
+  // ------------------------------------------------------------------
+  // Searching
+  // ------------------------------------------------------------------
+
+  /**
+   * Search (in the background) for the next occurrence of some text, starting
+   * after the selected line (or the top visible line), and wrapping around to
+   * the start of the file if necessary. If it is found, its line is shown
+   */
+  public void search(String text) {
+    checkArgument(!nullOrEmpty(text), "no search text");
+    cancelSearch();
+    if (mIndex == null)
+      return;
+    LineIndex index = mIndex;
+    int fromLine = mSelectedLine >= 0 ? mSelectedLine + 1 : mScrollBar.getValue();
+    Search search = new Search(index, text.getBytes(StandardCharsets.UTF_8), fromLine);
+    mSearch = search;
+    Thread t = new Thread(() -> {
+      int line;
+      try {
+        line = search.perform();
+      } catch (Throwable e) {
+        SwingUtilities.invokeLater(() -> searchFailed(search, e));
+        return;
+      }
+      if (line >= 0)
+        SwingUtilities.invokeLater(() -> {
+          if (mSearch == search && mIndex == index) {
+            mSearch = null;
+            showLine(line);
+          }
+        });
+    }, "FileViewerWidget search");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  /**
+   * Report a failure of the search thread on the Swing event thread (unless the
+   * search has since been superseded)
+   */
+  private void searchFailed(Search search, Throwable e) {
+    if (mSearch != search)
+      return;
+    mSearch = null;
+    throw asRuntimeException(e);
+  }
+
+  public boolean searching() {
+    return mSearch != null && !mSearch.finished();
+  }
+
+  private void cancelSearch() {
+    if (mSearch != null)
+      mSearch.cancel();
+    mSearch = null;
+  }
+
+  private static final class Search {
+
+    Search(LineIndex index, byte[] pattern, int fromLine) {
+      mIndex = index;
+      mPattern = pattern;
+      mFromLine = fromLine;
+    }
+
+    /**
+     * Perform the search
+     *
+     * @return line number where text was found, or -1
+     */
+    int perform() {
+      try {
+        Mapping mapping = mIndex.mapping();
+        // Start from the requested line if it has been indexed; otherwise, from
+        // the last line indexed so far (or the start of the file, if there are
+        // none, or indexing is complete)
+        int lines = mIndex.lineCount();
+        long start = 0;
+        if (mFromLine < lines)
+          start = mIndex.lineOffset(mFromLine);
+        else if (lines > 0 && !mIndex.complete())
+          start = mIndex.lineOffset(lines - 1);
+        long found = find(mapping, start, mapping.size());
+        if (found < 0 && start > 0)
+          found = find(mapping, 0, Math.min(mapping.size(), start + mPattern.length - 1));
+        if (found < 0)
+          return -1;
+        return mIndex.lineContaining(found, this);
+      } finally {
+        mFinished = true;
+      }
+    }
+
+    /**
+     * Find first occurrence of pattern beginning within [start, end)
+     */
+    private long find(Mapping mapping, long start, long end) {
+      Mapping.Reader reader = mapping.reader();
+      byte[] buf = new byte[BLOCK_SIZE];
+      int overlap = mPattern.length - 1;
+      byte first = mPattern[0];
+      long pos = start;
+      while (pos < end && !mCancelled) {
+        int count = reader.read(pos, buf, (int) Math.min(BLOCK_SIZE, mapping.size() - pos));
+        if (count < mPattern.length)
+          break;
+        int limit = count - overlap;
+        for (int i = 0; i < limit; i++) {
+          if (buf[i] != first || pos + i >= end)
+            continue;
+          int j = 1;
+          while (j < mPattern.length && buf[i + j] == mPattern[j])
+            j++;
+          if (j == mPattern.length)
+            return pos + i;
+        }
+        pos += limit;
+      }
+      return -1;
+    }
+
+    boolean cancelled() {
+      return mCancelled;
+    }
+
+    void cancel() {
+      mCancelled = true;
+    }
+
+    boolean finished() {
+      return mFinished;
+    }
+
+    private final LineIndex mIndex;
+    private final byte[] mPattern;
+    private final int mFromLine;
+    private volatile boolean mCancelled;
+    private volatile boolean mFinished;
+  }
+
+  // ------------------------------------------------------------------
+  // Memory mapped file
+  // ------------------------------------------------------------------
+
+  private static final class Mapping {
+
+    Mapping(File file) {
+      try (RandomAccessFile f = new RandomAccessFile(file, "r"); FileChannel channel = f.getChannel()) {
+        mSize = channel.size();
+        int segmentCount = (int) ((mSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        mSegments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+          long offset = (long) i * SEGMENT_SIZE;
+          mSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(SEGMENT_SIZE, mSize - offset));
+        }
+      } catch (IOException e) {
+        throw asRuntimeException(e);
+      }
+    }
+
+    long size() {
+      return mSize;
+    }
+
+    /**
+     * Construct a Reader; each thread must use its own
+     */
+    Reader reader() {
+      return new Reader();
+    }
+
+    final class Reader {
+
+      Reader() {
+        mBuffers = new ByteBuffer[mSegments.length];
+        for (int i = 0; i < mBuffers.length; i++)
+          mBuffers[i] = mSegments[i].duplicate();
+      }
+
+      /**
+       * Read bytes, starting at an offset
+       *
+       * @return number of bytes read (less than requested if the end of the
+       *         file is reached)
+       */
+      int read(long offset, byte[] dest, int length) {
+        int total = 0;
+        while (total < length && offset < mSize) {
+          ByteBuffer b = mBuffers[(int) (offset / SEGMENT_SIZE)];
+          int position = (int) (offset % SEGMENT_SIZE);
+          int count = Math.min(length - total, b.limit() - position);
+          b.position(position);
+          b.get(dest, total, count);
+          total += count;
+          offset += count;
+        }
+        return total;
+      }
+
+      /**
+       * Find the offset of the first linefeed within [offset, limit), or -1 if
+       * there is none
+       */
+      long findLinefeed(long offset, long limit) {
+        limit = Math.min(limit, mSize);
+        while (offset < limit) {
+          int count = read(offset, mScratch, (int) Math.min(mScratch.length, limit - offset));
+          for (int i = 0; i < count; i++)
+            if (mScratch[i] == '\n')
+              return offset + i;
+          offset += count;
+        }
+        return -1;
+      }
+
+      /**
+       * Get the text of a line (up to a maximum length)
+       */
+      String lineText(long start, long end) {
+        int length = (int) Math.min(end - start, MAX_LINE_BYTES);
+        byte[] bytes = new byte[length];
+        length = read(start, bytes, length);
+        if (length > 0 && bytes[length - 1] == '\r')
+          length--;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+
+      private final ByteBuffer[] mBuffers;
+      private final byte[] mScratch = new byte[4096];
+    }
+
+    private final long mSize;
+    private final ByteBuffer[] mSegments;
+  }
+
+  // ------------------------------------------------------------------
+  // Line index
+  // ------------------------------------------------------------------
+
+  /**
+   * Sparse index of line offsets, built by a background thread while being
+   * read by others.
+   * <p>
+   * It holds checkpoints, each the number and offset of a line. A checkpoint is
+   * added at the start of a line once there are CHECKPOINT_LINES lines, or
+   * CHECKPOINT_BYTES bytes, since the previous one. Thus locating the start of
+   * a line requires scanning at most CHECKPOINT_BYTES from a checkpoint, no
+   * matter how long the lines are
+   */
+  private static final class LineIndex {
+
+    LineIndex(Mapping mapping) {
+      mMapping = mapping;
+    }
+
+    Mapping mapping() {
+      return mMapping;
+    }
+
+    /**
+     * Scan the file for line breaks; called by the indexing thread
+     */
+    void build() {
+      Mapping.Reader reader = mMapping.reader();
+      long size = mMapping.size();
+      byte[] buf = new byte[BLOCK_SIZE];
+      Checkpoints checkpoints = new Checkpoints(1024);
+      int checkpointCount = 0;
+      int lines = 0;
+      if (size > 0) {
+        checkpointCount = 1;
+        lines = 1;
+      }
+      mCheckpoints = checkpoints;
+      int lastLine = 0;
+      long lastOffset = 0;
+      long pos = 0;
+      while (pos < size && !mCancelled) {
+        int count = reader.read(pos, buf, BLOCK_SIZE);
+        for (int i = 0; i < count; i++) {
+          if (buf[i] != '\n')
+            continue;
+          long lineStart = pos + i + 1;
+          if (lineStart == size)
+            break;
+          if (lines - lastLine >= CHECKPOINT_LINES || lineStart - lastOffset >= CHECKPOINT_BYTES) {
+            if (checkpointCount == checkpoints.lines.length) {
+              checkpoints = checkpoints.grow();
+              mCheckpoints = checkpoints;
+            }
+            checkpoints.lines[checkpointCount] = lines;
+            checkpoints.offsets[checkpointCount] = lineStart;
+            checkpointCount++;
+            lastLine = lines;
+            lastOffset = lineStart;
+          }
+          lines++;
+        }
+        pos += count;
+        // Publish the progress (after the checkpoints it depends upon)
+        mCheckpointCount = checkpointCount;
+        mIndexedBytes = pos;
+        mLineCount = lines;
+      }
+      mComplete = !mCancelled;
+    }
+
+    void cancel() {
+      mCancelled = true;
+    }
+
+    boolean complete() {
+      return mComplete;
+    }
+
+    int lineCount() {
+      return mLineCount;
+    }
+
+    /**
+     * Get the offset of the start of a line, which must have been indexed
+     */
+    long lineOffset(int line) {
+      return lineOffset(line, mMapping.reader());
+    }
+
+    long lineOffset(int line, Mapping.Reader reader) {
+      checkArgument(line >= 0 && line < mLineCount, "line not indexed:", line);
+      int count = mCheckpointCount;
+      Checkpoints checkpoints = mCheckpoints;
+      // Find last checkpoint at or before the line
+      int lo = 0, hi = count - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (checkpoints.lines[mid] <= line)
+          lo = mid;
+        else
+          hi = mid - 1;
+      }
+      long offset = checkpoints.offsets[lo];
+      for (int skip = line - checkpoints.lines[lo]; skip > 0; skip--)
+        offset = reader.findLinefeed(offset, Long.MAX_VALUE) + 1;
+      return offset;
+    }
+
+    /**
+     * Determine the line containing an offset, waiting until it has been
+     * indexed if necessary
+     *
+     * @return line number, or -1 if search was cancelled
+     */
+    int lineContaining(long offset, Search search) {
+      while (mIndexedBytes <= offset && !mComplete) {
+        if (search.cancelled() || mCancelled)
+          return -1;
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+          return -1;
+        }
+      }
+      int lines = mLineCount;
+      int count = mCheckpointCount;
+      Checkpoints checkpoints = mCheckpoints;
+      // Find last checkpoint at or before the offset
+      int lo = 0, hi = count - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (checkpoints.offsets[mid] <= offset)
+          lo = mid;
+        else
+          hi = mid - 1;
+      }
+      int line = checkpoints.lines[lo];
+      Mapping.Reader reader = mMapping.reader();
+      long lineStart = checkpoints.offsets[lo];
+      while (line + 1 < lines) {
+        long linefeed = reader.findLinefeed(lineStart, offset);
+        if (linefeed < 0)
+          break;
+        lineStart = linefeed + 1;
+        line++;
+      }
+      return line;
+    }
+
+    /**
+     * Checkpoint storage; replaced by a larger copy when full
+     */
+    private static final class Checkpoints {
+
+      Checkpoints(int capacity) {
+        lines = new int[capacity];
+        offsets = new long[capacity];
+      }
+
+      Checkpoints grow() {
+        Checkpoints c = new Checkpoints(lines.length * 2);
+        System.arraycopy(lines, 0, c.lines, 0, lines.length);
+        System.arraycopy(offsets, 0, c.offsets, 0, offsets.length);
+        return c;
+      }
+
+      final int[] lines;
+      final long[] offsets;
+    }
+
+    private final Mapping mMapping;
+    private volatile Checkpoints mCheckpoints;
+    private volatile int mCheckpointCount;
+    private volatile int mLineCount;
+    private volatile long mIndexedBytes;
+    private volatile boolean mComplete;
+    private volatile boolean mCancelled;
+  }
+
+  // ------------------------------------------------------------------
+  // Rendering
+  // ------------------------------------------------------------------
+
+  /**
+   * Component that draws the visible lines
+   */
+  private final class FileView extends JComponent {
+
+    FileView(Font font) {
+      setFont(font);
+      setOpaque(true);
+      Color background = UIManager.getColor("TextArea.background");
+      setBackground(background != null ? background : Color.WHITE);
+      Color foreground = UIManager.getColor("TextArea.foreground");
+      setForeground(foreground != null ? foreground : Color.BLACK);
+    }
+
+    int visibleLineCount() {
+      int lineHeight = getFontMetrics(getFont()).getHeight();
+      return Math.max(1, getHeight() / lineHeight);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      FontMetrics fm = getFontMetrics(getFont());
+      return new Dimension(fm.charWidth('m') * 80, fm.getHeight() * 24);
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+      super.setBounds(x, y, width, height);
+      // The number of visible lines may have changed
+      SwingUtilities.invokeLater(() -> updateLineCount());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+      g.setColor(getBackground());
+      g.fillRect(0, 0, getWidth(), getHeight());
+      LineIndex index = mIndex;
+      if (index == null)
+        return;
+      int lineCount = index.lineCount();
+      int top = mScrollBar.getValue();
+      if (top >= lineCount)
+        return;
+      g.setFont(getFont());
+      FontMetrics fm = g.getFontMetrics();
+      int lineHeight = fm.getHeight();
+      int visible = visibleLineCount() + 1;
+
+      // Each line is scanned for at most CHECKPOINT_BYTES; if it is longer
+      // than that, the start of the next line is found via the index
+      Mapping.Reader reader = index.mapping().reader();
+      long start = index.lineOffset(top, reader);
+      for (int i = 0; i < visible && top + i < lineCount; i++) {
+        long limit = start + CHECKPOINT_BYTES;
+        long end = reader.findLinefeed(start, limit);
+        int y = i * lineHeight;
+        if (top + i == mSelectedLine) {
+          g.setColor(SELECTION_COLOR);
+          g.fillRect(0, y, getWidth(), lineHeight);
+        }
+        g.setColor(getForeground());
+        g.drawString(reader.lineText(start, end >= 0 ? end : limit), MARGIN, y + fm.getAscent());
+        if (top + i + 1 >= lineCount)
+          break;
+        start = end >= 0 ? end + 1 : index.lineOffset(top + i + 1, reader);
+      }
+    }
+  }
+
+  private static final long SEGMENT_SIZE = 1L << 30;
+  private static final int BLOCK_SIZE = 1 << 16;
+  private static final int CHECKPOINT_LINES = 64;
+  private static final int CHECKPOINT_BYTES = 1 << 16;
+  private static final int MAX_LINE_BYTES = 4096;
+  private static final int PROGRESS_INTERVAL_MS = 100;
+  private static final int WHEEL_LINES = 3;
+  private static final int MARGIN = 4;
+  private static final Color SELECTION_COLOR = new Color(0xc8, 0xdc, 0xff);
+
+  private final FileView mView;
+  private final JScrollBar mScrollBar;
+  private final Timer mProgressTimer;
+  private File mFile;
+  private Mapping mMapping;
+  private LineIndex mIndex;
+  private int mSelectedLine = -1;
+  private Search mSearch;
+}
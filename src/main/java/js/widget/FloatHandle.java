@@ -0,0 +1,55 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+/**
+ * A handle to a floating point-valued widget (e.g. a floating point spinner
+ * or slider); see WidgetManager.floatHandle()
+ */
+public final class FloatHandle extends WidgetHandle {
+
+  FloatHandle(Widget widget) {
+    super(widget);
+    Object value = widget.readValue();
+    checkValue(value instanceof Float || value instanceof Double, "a floating point");
+  }
+
+  public double vd() {
+    return widget().readDouble();
+  }
+
+  public double setd(double v) {
+    widget().writeDouble(v);
+    return v;
+  }
+
+  public float vf() {
+    return (float) widget().readDouble();
+  }
+
+  public double setf(float v) {
+    return setd(v);
+  }
+}
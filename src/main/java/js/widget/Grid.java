@@ -24,6 +24,7 @@
  **/
 package js.widget;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static js.base.Tools.*;
@@ -50,6 +51,17 @@ final class Grid {
     mWidget = widget;
   }
 
+  /**
+   * Mark this grid as a tab set, whose views are tabs instead of cells
+   */
+  public void setTabSet() {
+    mTabSet = true;
+  }
+
+  public boolean isTabSet() {
+    return mTabSet;
+  }
+
   public int numColumns() {
     return mColumnSizes.length;
   }
@@ -66,10 +78,20 @@ final class Grid {
     if (mCachedNextCellLocation == null) {
       int x = 0;
       int y = 0;
-      if (!mCells.isEmpty()) {
-        GridCell lastCell = last(mCells);
-        x = lastCell.x + lastCell.width;
-        y = lastCell.y;
+      if (mPlan != null) {
+        int n = mPlannedViews.size();
+        if (n > 0) {
+          x = mPlan.cellEnds[n - 1];
+          y = mPlan.cellRows[n - 1];
+          if (x == numColumns()) {
+            x = 0;
+            y += 1;
+          }
+        }
+      } else if (mCellCount > 0) {
+        int last = mCellCount - 1;
+        x = mCellX[last] + mCellWidth[last];
+        y = mCellY[last];
         checkState(x <= numColumns());
         if (x == numColumns()) {
           x = 0;
@@ -101,61 +123,214 @@ final class Grid {
     return y;
   }
 
+  // ------------------------------------------------------------------
+  // Cells
+  // ------------------------------------------------------------------
+
+  // Each view occupies a single cell, which may span multiple columns. The
+  // cells' fields are stored in parallel arrays, in the order the cells were
+  // added (which is row-major order); in addition, each grid location stores
+  // the index of the cell occupying it
+
+  /**
+   * Get the index of the cell occupying a location
+   */
+  public int cellIndexAt(int x, int y) {
+    return mCellIndex[checkValidRow(y) * numColumns() + checkValidColumn(x)];
+  }
+
+  /**
+   * Get a copy of the cell occupying a location. This allocates a GridCell;
+   * callers that only need some of the cell's fields should use cellIndexAt()
+   * and the index-based accessors instead
+   */
   public GridCell cellAt(int x, int y) {
-    return mCells.get(checkValidRow(y) * numColumns() + checkValidColumn(x));
+    return cell(cellIndexAt(x, y));
+  }
+
+  public int cellCount() {
+    return mCellCount;
+  }
+
+  /**
+   * Get a copy of a cell, including its view
+   */
+  public GridCell cell(int index) {
+    GridCell c = new GridCell();
+    c.view = mCellViews[index];
+    c.x = mCellX[index];
+    c.y = mCellY[index];
+    c.width = mCellWidth[index];
+    c.growX = mCellGrowX[index];
+    c.growY = mCellGrowY[index];
+    return c;
+  }
+
+  public Object cellView(int index) {
+    return mCellViews[index];
+  }
+
+  public int cellX(int index) {
+    return mCellX[index];
+  }
+
+  public int cellY(int index) {
+    return mCellY[index];
   }
 
+  public int cellWidth(int index) {
+    return mCellWidth[index];
+  }
+
+  public int cellGrowX(int index) {
+    return mCellGrowX[index];
+  }
+
+  public int cellGrowY(int index) {
+    return mCellGrowY[index];
+  }
+
+  /**
+   * Add a cell at the next location; its fields are copied
+   */
   public void addCell(GridCell cell) {
-    mCells.add(cell);
+    int index = mCellCount;
+    if (index == mCellX.length) {
+      int capacity = Math.max(16, index * 2);
+      mCellViews = Arrays.copyOf(mCellViews, capacity);
+      mCellX = Arrays.copyOf(mCellX, capacity);
+      mCellY = Arrays.copyOf(mCellY, capacity);
+      mCellWidth = Arrays.copyOf(mCellWidth, capacity);
+      mCellGrowX = Arrays.copyOf(mCellGrowX, capacity);
+      mCellGrowY = Arrays.copyOf(mCellGrowY, capacity);
+    }
+    mCellViews[index] = cell.view;
+    mCellX[index] = cell.x;
+    mCellY[index] = cell.y;
+    mCellWidth[index] = cell.width;
+    mCellGrowX[index] = cell.growX;
+    mCellGrowY[index] = cell.growY;
+    mCellCount++;
+
+    // "Paint" the locations this cell occupies
+    int end = mCellIndexSize + cell.width;
+    if (end > mCellIndex.length)
+      mCellIndex = Arrays.copyOf(mCellIndex, Math.max(end, mCellIndex.length * 2));
+    Arrays.fill(mCellIndex, mCellIndexSize, end, index);
+    mCellIndexSize = end;
     mCachedNextCellLocation = null;
   }
 
+  // ------------------------------------------------------------------
+  // Layout plans
+  // ------------------------------------------------------------------
+
   /**
-   * Get list of cells... must be considered READ ONLY
+   * Use a previously recorded plan for this grid's geometry. Views are then
+   * added via addPlannedView() instead of addCell()
    */
-  public List<GridCell> cells() {
-    return mCells;
+  public void setPlan(LayoutPlan.GridPlan plan) {
+    checkState(mCellCount == 0);
+    mPlan = plan;
   }
 
-  public void propagateGrowFlags() {
+  public LayoutPlan.GridPlan plan() {
+    return mPlan;
+  }
 
-    CellWeightList colGrowFlags = new CellWeightList();
-    CellWeightList rowGrowFlags = new CellWeightList();
+  public void addPlannedView(Widget view) {
+    if (mPlannedViews.size() >= mPlan.viewCount())
+      badState("layout differs from plan; too many views in grid:", debugContext());
+    mPlannedViews.add(view);
+    mCachedNextCellLocation = null;
+  }
+
+  public List<Widget> plannedViews() {
+    return mPlannedViews;
+  }
+
+  /**
+   * Set index of plan being recorded for this grid (or -1 if none)
+   */
+  public void setPlanIndex(int index) {
+    mPlanIndex = index;
+  }
+
+  public int planIndex() {
+    return mPlanIndex;
+  }
+
+  /**
+   * Propagate each view's grow flags to the other cells in its column and row.
+   * Uses scratch buffers held by the grid, so doesn't allocate (once they are
+   * large enough)
+   */
+  public void propagateGrowFlags() {
+    int numColumns = numColumns();
+    int numRows = (mCellIndexSize + numColumns - 1) / numColumns;
+    if (mColumnGrowScratch.length < numColumns)
+      mColumnGrowScratch = new int[numColumns];
+    if (mRowGrowScratch.length < numRows)
+      mRowGrowScratch = new int[Math.max(numRows, mRowGrowScratch.length * 2)];
+    int[] colGrowFlags = mColumnGrowScratch;
+    int[] rowGrowFlags = mRowGrowScratch;
+    Arrays.fill(colGrowFlags, 0, numColumns, 0);
+    Arrays.fill(rowGrowFlags, 0, numRows, 0);
 
-    for (GridCell cell : cells()) {
-      if (cell.isEmpty())
+    for (int i = 0; i < mCellCount; i++) {
+      if (mCellViews[i] == null)
         continue;
 
       // If view occupies multiple cells horizontally, don't propagate its grow flag
-      if (cell.growX > 0 && cell.width == 1) {
-        if (colGrowFlags.get(cell.x) < cell.growX) {
-          colGrowFlags.set(cell.x, cell.growX);
+      int growX = mCellGrowX[i];
+      if (growX > 0 && mCellWidth[i] == 1) {
+        if (colGrowFlags[mCellX[i]] < growX) {
+          colGrowFlags[mCellX[i]] = growX;
         }
       }
       // If view occupies multiple cells vertically, don't propagate its grow flag
       // (at present, we don't support views stretching across multiple rows)
-      if (cell.growY > 0 /* && cell.height == 1 */) {
-        if (rowGrowFlags.get(cell.y) < cell.growY) {
-          rowGrowFlags.set(cell.y, cell.growY);
+      int growY = mCellGrowY[i];
+      if (growY > 0) {
+        if (rowGrowFlags[mCellY[i]] < growY) {
+          rowGrowFlags[mCellY[i]] = growY;
         }
       }
     }
 
-    // Now propagate grow flags from bit sets back to individual cells
-    for (GridCell cell : cells()) {
-      if (cell.isEmpty())
+    // Now propagate grow flags from the scratch buffers back to individual cells
+    for (int i = 0; i < mCellCount; i++) {
+      if (mCellViews[i] == null)
         continue;
-      for (int x = cell.x; x < cell.x + cell.width; x++) {
-        cell.growX = Math.max(cell.growX, colGrowFlags.get(x));
+      int growX = mCellGrowX[i];
+      for (int x = mCellX[i]; x < mCellX[i] + mCellWidth[i]; x++) {
+        growX = Math.max(growX, colGrowFlags[x]);
       }
-      cell.growY = rowGrowFlags.get(cell.y);
+      mCellGrowX[i] = growX;
+      mCellGrowY[i] = rowGrowFlags[mCellY[i]];
     }
   }
 
-  private final List<GridCell> mCells = arrayList();
+  private int mCellCount;
+  private Object[] mCellViews = new Object[0];
+  private int[] mCellX = new int[0];
+  private int[] mCellY = new int[0];
+  private int[] mCellWidth = new int[0];
+  private int[] mCellGrowX = new int[0];
+  private int[] mCellGrowY = new int[0];
+  // Index of cell occupying each location, in row-major order
+  private int[] mCellIndex = new int[0];
+  private int mCellIndexSize;
+  // Scratch buffers for propagateGrowFlags()
+  private int[] mColumnGrowScratch = new int[0];
+  private int[] mRowGrowScratch = new int[0];
   private int[] mColumnSizes;
   private IPoint mCachedNextCellLocation;
   private Widget mWidget;
+  private boolean mTabSet;
+  private LayoutPlan.GridPlan mPlan;
+  private final List<Widget> mPlannedViews = arrayList();
+  private int mPlanIndex = -1;
   private String mDebugContext = "<no context>";
 
 }
@@ -41,7 +41,7 @@ final class GridCell {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder("cell ");
-    sb.append(view.getClass().getSimpleName());
+    sb.append(view == null ? "<no view>" : view.getClass().getSimpleName());
     tab(sb, 16);
     sb.append(x);
     sb.append(",");
@@ -54,6 +54,19 @@ final class GridCell {
     return sb.toString();
   }
 
+  /**
+   * Get a copy of this cell's location, size and weights (but not its view)
+   */
+  public GridCell copyGeometry() {
+    GridCell c = new GridCell();
+    c.x = x;
+    c.y = y;
+    c.width = width;
+    c.growX = growX;
+    c.growY = growY;
+    return c;
+  }
+
   public boolean isEmpty() {
     return view == null;
   }
@@ -0,0 +1,448 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.LayoutManager2;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout manager for the grids constructed by WidgetManager. Each component's
+ * constraints are a GridCell, which specifies its row, its columns, and its
+ * horizontal and vertical weights.
+ * <p>
+ * Components are laid out exactly as GridBagLayout would lay them out with
+ * equivalent GridBagConstraints (gridheight 1, fill BOTH, no insets or
+ * padding). Unlike GridBagLayout, the sizes of the components, and the
+ * resulting column widths and row heights, are cached; when the container is
+ * invalidated, only the rows whose components' sizes have changed are
+ * recomputed (and the columns, if any component's width has changed)
+ */
+final class GridCellLayout implements LayoutManager2 {
+
+  // ------------------------------------------------------------------
+  // LayoutManager2 interface
+  // ------------------------------------------------------------------
+
+  @Override
+  public void addLayoutComponent(Component comp, Object constraints) {
+    if (constraints == null)
+      return;
+    if (!(constraints instanceof GridCell))
+      throw badArg("constraints must be a GridCell:", constraints);
+    GridCell cell = (GridCell) constraints;
+    checkArgument(cell.x >= 0 && cell.y >= 0 && cell.width > 0, "bad cell:", cell);
+    mCells.put(comp, cell.copyGeometry());
+    mComponentsChanged = true;
+  }
+
+  @Override
+  public void addLayoutComponent(String name, Component comp) {
+  }
+
+  @Override
+  public void removeLayoutComponent(Component comp) {
+    mCells.remove(comp);
+    mComponentsChanged = true;
+  }
+
+  @Override
+  public void invalidateLayout(Container target) {
+    if (mPreferred != null)
+      mPreferred.stale = true;
+    if (mMinimum != null)
+      mMinimum.stale = true;
+  }
+
+  @Override
+  public Dimension preferredLayoutSize(Container parent) {
+    return layoutSize(parent, sizes(parent, true));
+  }
+
+  @Override
+  public Dimension minimumLayoutSize(Container parent) {
+    return layoutSize(parent, sizes(parent, false));
+  }
+
+  @Override
+  public Dimension maximumLayoutSize(Container target) {
+    return new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public float getLayoutAlignmentX(Container target) {
+    return 0.5f;
+  }
+
+  @Override
+  public float getLayoutAlignmentY(Container target) {
+    return 0.5f;
+  }
+
+  @Override
+  public void layoutContainer(Container parent) {
+    if (parent.getComponentCount() == 0)
+      return;
+
+    AxisSizes sizes = sizes(parent, true);
+    Dimension d = layoutSize(parent, sizes);
+    if (parent.getWidth() < d.width || parent.getHeight() < d.height) {
+      sizes = sizes(parent, false);
+      d = layoutSize(parent, sizes);
+    }
+
+    Insets insets = parent.getInsets();
+
+    int[] colWidths = distributeExtraSpace(sizes.colSizes, sizes.colWeights, sizes.numCols,
+        parent.getWidth() - d.width, mScratchCols);
+    mScratchCols = colWidths;
+    int diffw = parent.getWidth() - (insets.left + insets.right) - sum(colWidths, 0, sizes.numCols);
+
+    int[] rowHeights = distributeExtraSpace(sizes.rowSizes, sizes.rowWeights, sizes.numRows,
+        parent.getHeight() - d.height, mScratchRows);
+    mScratchRows = rowHeights;
+    int diffh = parent.getHeight() - (insets.top + insets.bottom) - sum(rowHeights, 0, sizes.numRows);
+
+    int startX = diffw / 2 + insets.left;
+    int startY = diffh / 2 + insets.top;
+    boolean leftToRight = parent.getComponentOrientation().isLeftToRight();
+
+    for (Entry ent : mEntries) {
+      GridCell cell = ent.cell;
+      int x = startX + sum(colWidths, 0, cell.x);
+      int y = startY + sum(rowHeights, 0, cell.y);
+      int width = sum(colWidths, cell.x, cell.x + cell.width);
+      int height = rowHeights[cell.y];
+
+      if (!leftToRight)
+        x = parent.getWidth() - (x + width);
+
+      if (x < 0) {
+        width += x;
+        x = 0;
+      }
+      if (y < 0) {
+        height += y;
+        y = 0;
+      }
+
+      Component comp = ent.component;
+      if (width <= 0 || height <= 0)
+        comp.setBounds(0, 0, 0, 0);
+      else if (comp.getX() != x || comp.getY() != y || comp.getWidth() != width || comp.getHeight() != height)
+        comp.setBounds(x, y, width, height);
+    }
+  }
+
+  // ------------------------------------------------------------------
+  // Column and row sizes
+  // ------------------------------------------------------------------
+
+  /**
+   * Column widths and row heights, based upon either the preferred or minimum
+   * sizes of the components, and the weights of the columns and rows
+   */
+  private static final class AxisSizes {
+    int numCols, numRows;
+    int[] colSizes, rowSizes;
+    double[] colWeights, rowWeights;
+    boolean colsValid;
+    boolean[] rowsValid;
+    // True if the components' sizes need to be checked for changes
+    boolean stale = true;
+  }
+
+  /**
+   * Information about a visible component
+   */
+  private static final class Entry {
+    Component component;
+    GridCell cell;
+    // Cached sizes; -1 if not yet known
+    int prefWidth = -1, prefHeight = -1, minWidth = -1, minHeight = -1;
+  }
+
+  /**
+   * Get the column and row sizes, bringing them up to date if necessary
+   */
+  private AxisSizes sizes(Container parent, boolean preferred) {
+    refreshEntries(parent);
+    AxisSizes sizes = preferred ? mPreferred : mMinimum;
+    if (sizes == null) {
+      sizes = new AxisSizes();
+      initAxisSizes(sizes);
+      if (preferred)
+        mPreferred = sizes;
+      else
+        mMinimum = sizes;
+    }
+
+    // While the container is invalid, a component's size may change without
+    // invalidateLayout() being called again, so check them all
+    if (sizes.stale || !parent.isValid()) {
+      refreshComponentSizes(sizes, preferred);
+      sizes.stale = false;
+    }
+
+    if (!sizes.colsValid) {
+      computeColumns(sizes, preferred);
+      sizes.colsValid = true;
+    }
+    for (int row = 0; row < sizes.numRows; row++) {
+      if (!sizes.rowsValid[row]) {
+        computeRow(sizes, row, preferred);
+        sizes.rowsValid[row] = true;
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * If the set of visible components has changed, rebuild the entries and
+   * discard all cached sizes
+   */
+  private void refreshEntries(Container parent) {
+    int count = parent.getComponentCount();
+    if (!mComponentsChanged) {
+      // Check if the order or visibility of the components has changed
+      int visibleIndex = 0;
+      for (int i = 0; i < count; i++) {
+        Component c = parent.getComponent(i);
+        if (!c.isVisible() || !mCells.containsKey(c))
+          continue;
+        if (visibleIndex >= mEntries.size() || mEntries.get(visibleIndex).component != c) {
+          mComponentsChanged = true;
+          break;
+        }
+        visibleIndex++;
+      }
+      if (visibleIndex != mEntries.size())
+        mComponentsChanged = true;
+    }
+    if (!mComponentsChanged)
+      return;
+
+    mEntries.clear();
+    for (int i = 0; i < count; i++) {
+      Component c = parent.getComponent(i);
+      if (!c.isVisible())
+        continue;
+      GridCell cell = mCells.get(c);
+      if (cell == null)
+        continue;
+      Entry ent = new Entry();
+      ent.component = c;
+      ent.cell = cell;
+      mEntries.add(ent);
+    }
+    mPreferred = null;
+    mMinimum = null;
+    mComponentsChanged = false;
+  }
+
+  private void initAxisSizes(AxisSizes sizes) {
+    int numCols = 0;
+    int numRows = 0;
+    for (Entry ent : mEntries) {
+      numCols = Math.max(numCols, ent.cell.x + ent.cell.width);
+      numRows = Math.max(numRows, ent.cell.y + 1);
+    }
+    sizes.numCols = numCols;
+    sizes.numRows = numRows;
+    sizes.colSizes = new int[numCols];
+    sizes.colWeights = new double[numCols];
+    sizes.rowSizes = new int[numRows];
+    sizes.rowWeights = new double[numRows];
+    sizes.rowsValid = new boolean[numRows];
+
+    // Since each component occupies a single row, a row's weight is the maximum
+    // of its components' weights
+    for (Entry ent : mEntries) {
+      int row = ent.cell.y;
+      sizes.rowWeights[row] = Math.max(sizes.rowWeights[row], ent.cell.growY);
+    }
+  }
+
+  /**
+   * Query the components' sizes, and mark any columns or rows affected by
+   * changes as invalid
+   */
+  private void refreshComponentSizes(AxisSizes sizes, boolean preferred) {
+    for (Entry ent : mEntries) {
+      Dimension d = preferred ? ent.component.getPreferredSize() : ent.component.getMinimumSize();
+      if (preferred) {
+        if (d.width != ent.prefWidth)
+          sizes.colsValid = false;
+        if (d.height != ent.prefHeight)
+          sizes.rowsValid[ent.cell.y] = false;
+        ent.prefWidth = d.width;
+        ent.prefHeight = d.height;
+      } else {
+        if (d.width != ent.minWidth)
+          sizes.colsValid = false;
+        if (d.height != ent.minHeight)
+          sizes.rowsValid[ent.cell.y] = false;
+        ent.minWidth = d.width;
+        ent.minHeight = d.height;
+      }
+    }
+  }
+
+  /**
+   * Compute the column widths and weights; this replicates GridBagLayout's
+   * algorithm, which processes components in order of increasing column span
+   */
+  private void computeColumns(AxisSizes sizes, boolean preferred) {
+    int[] widths = sizes.colSizes;
+    double[] weights = sizes.colWeights;
+    Arrays.fill(widths, 0);
+    Arrays.fill(weights, 0);
+
+    int span = 1;
+    while (span != Integer.MAX_VALUE) {
+      int nextSpan = Integer.MAX_VALUE;
+      for (Entry ent : mEntries) {
+        GridCell cell = ent.cell;
+        if (cell.width != span) {
+          if (cell.width > span && cell.width < nextSpan)
+            nextSpan = cell.width;
+          continue;
+        }
+        int px = cell.x + cell.width;
+
+        // Distribute the component's weight, if it exceeds the total weight of
+        // the columns it spans, according to their existing weights
+        double weightDiff = cell.growX;
+        for (int k = cell.x; k < px; k++)
+          weightDiff -= weights[k];
+        if (weightDiff > 0.0) {
+          double weight = 0.0;
+          for (int k = cell.x; k < px; k++)
+            weight += weights[k];
+          for (int k = cell.x; weight > 0.0 && k < px; k++) {
+            double wt = weights[k];
+            double dx = (wt * weightDiff) / weight;
+            weights[k] += dx;
+            weightDiff -= dx;
+            weight -= wt;
+          }
+          // Assign the remainder to the rightmost column
+          weights[px - 1] += weightDiff;
+        }
+
+        // Distribute any additional width required by the component in the
+        // same way
+        int pixelsDiff = preferred ? ent.prefWidth : ent.minWidth;
+        for (int k = cell.x; k < px; k++)
+          pixelsDiff -= widths[k];
+        if (pixelsDiff > 0) {
+          double weight = 0.0;
+          for (int k = cell.x; k < px; k++)
+            weight += weights[k];
+          for (int k = cell.x; weight > 0.0 && k < px; k++) {
+            double wt = weights[k];
+            int dx = (int) ((wt * ((double) pixelsDiff)) / weight);
+            widths[k] += dx;
+            pixelsDiff -= dx;
+            weight -= wt;
+          }
+          // Any leftovers go into the rightmost column
+          widths[px - 1] += pixelsDiff;
+        }
+      }
+      span = nextSpan;
+    }
+  }
+
+  /**
+   * Compute a row's height. Since each component occupies a single row, this
+   * is the maximum of its components' heights
+   */
+  private void computeRow(AxisSizes sizes, int row, boolean preferred) {
+    int height = 0;
+    for (Entry ent : mEntries) {
+      if (ent.cell.y != row)
+        continue;
+      height = Math.max(height, preferred ? ent.prefHeight : ent.minHeight);
+    }
+    sizes.rowSizes[row] = height;
+  }
+
+  private static Dimension layoutSize(Container parent, AxisSizes sizes) {
+    Insets insets = parent.getInsets();
+    return new Dimension(sum(sizes.colSizes, 0, sizes.numCols) + insets.left + insets.right,
+        sum(sizes.rowSizes, 0, sizes.numRows) + insets.top + insets.bottom);
+  }
+
+  /**
+   * Adjust sizes to fit the container, distributing the difference (which may
+   * be negative) according to the weights
+   *
+   * @param dest
+   *          array to store the results in, if it is large enough
+   * @return adjusted sizes
+   */
+  private static int[] distributeExtraSpace(int[] sizes, double[] weights, int count, int diff, int[] dest) {
+    if (dest == null || dest.length < count)
+      dest = new int[count];
+    System.arraycopy(sizes, 0, dest, 0, count);
+    if (diff == 0)
+      return dest;
+    double weight = 0.0;
+    for (int i = 0; i < count; i++)
+      weight += weights[i];
+    if (weight > 0.0) {
+      for (int i = 0; i < count; i++) {
+        int dx = (int) ((((double) diff) * weights[i]) / weight);
+        dest[i] += dx;
+        if (dest[i] < 0)
+          dest[i] = 0;
+      }
+    }
+    return dest;
+  }
+
+  private static int sum(int[] values, int start, int end) {
+    int total = 0;
+    for (int i = start; i < end; i++)
+      total += values[i];
+    return total;
+  }
+
+  private final Map<Component, GridCell> mCells = hashMap();
+  private final List<Entry> mEntries = arrayList();
+  private boolean mComponentsChanged;
+  private AxisSizes mPreferred;
+  private AxisSizes mMinimum;
+  private int[] mScratchCols;
+  private int[] mScratchRows;
+}
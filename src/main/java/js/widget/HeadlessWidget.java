@@ -0,0 +1,110 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+/**
+ * A widget without any Swing component, used by a headless WidgetManager; it
+ * holds the widget's value, and the node representing it within the layout
+ * tree
+ */
+final class HeadlessWidget extends Widget {
+
+  HeadlessWidget(String kind, WidgetListener listener, Object value) {
+    mNode = new LayoutNode(kind);
+    registerListener(listener);
+    mValue = value;
+  }
+
+  LayoutNode node() {
+    return mNode;
+  }
+
+  @Override
+  public Object readValue() {
+    return mValue;
+  }
+
+  @Override
+  public void writeValue(Object v) {
+    mValue = v;
+    valueChanged();
+  }
+
+  @Override
+  public boolean isChecked() {
+    return (Boolean) mValue;
+  }
+
+  @Override
+  public void setChecked(boolean state) {
+    writeValue(state);
+  }
+
+  @Override
+  public String getText() {
+    return (String) mValue;
+  }
+
+  @Override
+  public void setText(String text) {
+    writeValue(text);
+  }
+
+  @Override
+  public void appendText(String text) {
+    // Appended text (e.g. to a log) isn't retained
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    mEnabled = enabled;
+  }
+
+  @Override
+  public boolean enabled() {
+    return mEnabled;
+  }
+
+  @Override
+  public void setVisible(boolean visible) {
+  }
+
+  /**
+   * Add a tab, if this widget represents a tab set; its value is the symbolic
+   * name of the selected tab, which is initially the first one
+   */
+  void addTab(String tabNameExpr) {
+    if (mTabNames == null)
+      mTabNames = new SymbolicNameSet();
+    mTabNames.add(tabNameExpr);
+    if (mValue == null)
+      mValue = mTabNames.getSymbolicName(0);
+  }
+
+  private final LayoutNode mNode;
+  private SymbolicNameSet mTabNames;
+  private Object mValue;
+  private boolean mEnabled = true;
+}
@@ -12,6 +12,13 @@ class HiddenWidget extends Widget {
 
   @Override
   public Object readValue() {
+    // If the value was written as a primitive, box it now
+    if (mValue == null) {
+      if (mPrimitiveType == TYPE_INT)
+        mValue = mIntValue;
+      else if (mPrimitiveType == TYPE_DOUBLE)
+        mValue = mDoubleValue;
+    }
     return mValue;
   }
 
@@ -19,6 +26,48 @@ class HiddenWidget extends Widget {
   public void writeValue(Object v) {
     checkArgument(v != null);
     mValue = v;
+    mPrimitiveType = TYPE_NONE;
+    valueChanged();
+  }
+
+  @Override
+  public int readInt() {
+    switch (mPrimitiveType) {
+    case TYPE_INT:
+      return mIntValue;
+    case TYPE_DOUBLE:
+      return (int) mDoubleValue;
+    default:
+      return super.readInt();
+    }
+  }
+
+  @Override
+  public double readDouble() {
+    switch (mPrimitiveType) {
+    case TYPE_INT:
+      return mIntValue;
+    case TYPE_DOUBLE:
+      return mDoubleValue;
+    default:
+      return super.readDouble();
+    }
+  }
+
+  @Override
+  public void writeInt(int v) {
+    mPrimitiveType = TYPE_INT;
+    mIntValue = v;
+    mValue = null;
+    valueChanged();
+  }
+
+  @Override
+  public void writeDouble(double v) {
+    mPrimitiveType = TYPE_DOUBLE;
+    mDoubleValue = v;
+    mValue = null;
+    valueChanged();
   }
 
   @Override
@@ -36,5 +85,13 @@ class HiddenWidget extends Widget {
     throw new UnsupportedOperationException();
   }
 
+  private static final int TYPE_NONE = 0;
+  private static final int TYPE_INT = 1;
+  private static final int TYPE_DOUBLE = 2;
+
+  // The value, or null if it was written as a primitive and hasn't been boxed yet
   private Object mValue;
+  private int mPrimitiveType;
+  private int mIntValue;
+  private double mDoubleValue;
 }
\ No newline at end of file
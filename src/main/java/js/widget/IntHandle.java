@@ -1,18 +1,18 @@
 /**
  * MIT License
- * 
+ *
  * Copyright (c) 2021 Jeff Sember
- * 
+ *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
  * in the Software without restriction, including without limitation the rights
  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
  * copies of the Software, and to permit persons to whom the Software is
  * furnished to do so, subject to the following conditions:
- * 
+ *
  * The above copyright notice and this permission notice shall be included in all
  * copies or substantial portions of the Software.
- * 
+ *
  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
@@ -20,31 +20,27 @@
  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
- * 
+ *
  **/
 package js.widget;
 
-import static js.base.Tools.*;
-
-import java.util.List;
-
-final class CellWeightList {
+/**
+ * A handle to an integer-valued widget (e.g. an integer spinner or slider);
+ * see WidgetManager.intHandle()
+ */
+public final class IntHandle extends WidgetHandle {
 
-  public void set(int index, int weight) {
-    growTo(1 + index);
-    mWeights.set(index, weight);
+  IntHandle(Widget widget) {
+    super(widget);
+    checkValue(widget.readValue() instanceof Integer, "an int");
   }
 
-  public int get(int index) {
-    if (mWeights.size() <= index)
-      return 0;
-    return mWeights.get(index);
+  public int vi() {
+    return widget().readInt();
   }
 
-  private void growTo(int capacity) {
-    while (mWeights.size() < capacity)
-      mWeights.add(0);
+  public int seti(int v) {
+    widget().writeInt(v);
+    return v;
   }
-
-  private List<Integer> mWeights = arrayList();
 }
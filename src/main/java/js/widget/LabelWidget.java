@@ -27,6 +27,7 @@ class LabelWidget extends Widget {
   @Override
   public void setText(String text) {
     textComponent().setText(text);
+    valueChanged();
   }
 
   @Override
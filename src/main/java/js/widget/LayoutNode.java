@@ -0,0 +1,196 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.util.List;
+
+import js.base.BaseObject;
+import js.json.JSList;
+import js.json.JSMap;
+
+/**
+ * A node within the layout tree produced by a headless WidgetManager. It
+ * describes a widget and its location within its parent grid; a node for a grid
+ * (or tab set) also has child nodes
+ */
+public final class LayoutNode extends BaseObject {
+
+  LayoutNode(String kind) {
+    mKind = kind;
+  }
+
+  /**
+   * Get the kind of widget this node represents, e.g. "panel", "text",
+   * "toggle"
+   */
+  public String kind() {
+    return mKind;
+  }
+
+  /**
+   * Get the widget's id, or null if it has none
+   */
+  public String widgetId() {
+    return mWidgetId;
+  }
+
+  public String label() {
+    return mLabel;
+  }
+
+  public String tooltip() {
+    return mTooltip;
+  }
+
+  /**
+   * Get the title of the tab containing this node, if its parent is a tab set
+   */
+  public String tabTitle() {
+    return mTabTitle;
+  }
+
+  public int x() {
+    return mX;
+  }
+
+  public int y() {
+    return mY;
+  }
+
+  /**
+   * Get the number of columns this node spans
+   */
+  public int width() {
+    return mWidth;
+  }
+
+  public int growX() {
+    return mGrowX;
+  }
+
+  public int growY() {
+    return mGrowY;
+  }
+
+  /**
+   * Get the column weights, if this node is a grid; otherwise, null... must be
+   * considered READ ONLY
+   */
+  public int[] columnWeights() {
+    return mColumnWeights;
+  }
+
+  /**
+   * Get list of child nodes... must be considered READ ONLY
+   */
+  public List<LayoutNode> children() {
+    return mChildren;
+  }
+
+  @Override
+  public JSMap toJson() {
+    JSMap m = map();
+    m.put("kind", mKind);
+    if (mWidgetId != null)
+      m.put("id", mWidgetId);
+    if (mLabel != null)
+      m.put("label", mLabel);
+    if (mTooltip != null)
+      m.put("tooltip", mTooltip);
+    if (mTabTitle != null)
+      m.put("tab", mTabTitle);
+    if (mWidth > 0) {
+      m.put("x", mX);
+      m.put("y", mY);
+      m.put("width", mWidth);
+      m.put("grow_x", mGrowX);
+      m.put("grow_y", mGrowY);
+    }
+    if (mColumnWeights != null) {
+      JSList cols = list();
+      for (int w : mColumnWeights)
+        cols.add(w);
+      m.put("columns", cols);
+    }
+    if (!mChildren.isEmpty()) {
+      JSList children = list();
+      for (LayoutNode child : mChildren)
+        children.add(child.toJson());
+      m.put("children", children);
+    }
+    return m;
+  }
+
+  // ------------------------------------------------------------------
+  // Construction, by WidgetManager
+  // ------------------------------------------------------------------
+
+  void setWidgetId(String id) {
+    mWidgetId = id;
+  }
+
+  void setLabel(String label) {
+    mLabel = label;
+  }
+
+  void setTooltip(String tooltip) {
+    mTooltip = tooltip;
+  }
+
+  void setTabTitle(String title) {
+    mTabTitle = title;
+  }
+
+  /**
+   * Copy the geometry of one of a grid's cells
+   */
+  void setCell(Grid grid, int cellIndex) {
+    mX = grid.cellX(cellIndex);
+    mY = grid.cellY(cellIndex);
+    mWidth = grid.cellWidth(cellIndex);
+    mGrowX = grid.cellGrowX(cellIndex);
+    mGrowY = grid.cellGrowY(cellIndex);
+  }
+
+  void setColumnWeights(int[] weights) {
+    // Grid column sizes may be shared with other grids, so store a copy
+    mColumnWeights = weights.clone();
+  }
+
+  void addChild(LayoutNode child) {
+    mChildren.add(child);
+  }
+
+  private final String mKind;
+  private String mWidgetId;
+  private String mLabel;
+  private String mTooltip;
+  private String mTabTitle;
+  private int mX, mY, mWidth, mGrowX, mGrowY;
+  private int[] mColumnWeights;
+  private final List<LayoutNode> mChildren = arrayList();
+}
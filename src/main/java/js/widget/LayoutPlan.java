@@ -0,0 +1,134 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A compiled version of a sequence of WidgetManager layout calls (columns(),
+ * open(), add...(), close(), etc.).
+ * <p>
+ * The first time the plan is applied, the sequence is performed normally, and
+ * the geometry of each grid (its column weights, and the cells occupied by its
+ * views) is recorded. Subsequent applications
+ * still construct new widgets, but use the recorded geometry instead of
+ * recomputing it.
+ * <p>
+ * The sequence must produce the same layout each time it is performed; if it
+ * doesn't, an exception is thrown
+ *
+ * <pre>
+ *
+ * Usage:
+ *
+ *    private LayoutPlan mControlsPlan = new LayoutPlan((m) -> {
+ *       m.columns(".x").open();
+ *         ...
+ *       m.close();
+ *    });
+ *
+ *    public void populateFrame(JPanel parentPanel) {
+ *       ...
+ *       mControlsPlan.applyTo(widgetManager());
+ *    }
+ *
+ * </pre>
+ */
+public final class LayoutPlan {
+
+  public LayoutPlan(Consumer<WidgetManager> builder) {
+    mBuilder = checkNotNull(builder);
+  }
+
+  /**
+   * Determine if the plan's geometry has been recorded
+   */
+  public boolean compiled() {
+    return mGridPlans != null;
+  }
+
+  /**
+   * Perform the layout sequence on a WidgetManager
+   */
+  public void applyTo(WidgetManager manager) {
+    // A headless manager's layout is computed without constructing Swing
+    // components, so there is nothing to be gained by using the plan
+    if (manager.headless()) {
+      mBuilder.accept(manager);
+      return;
+    }
+    if (compiled()) {
+      manager.startLayoutPlan(mGridPlans, null);
+      try {
+        mBuilder.accept(manager);
+      } finally {
+        manager.endLayoutPlan();
+      }
+      return;
+    }
+    List<GridPlan> recorded = arrayList();
+    manager.startLayoutPlan(null, recorded);
+    try {
+      mBuilder.accept(manager);
+    } finally {
+      manager.endLayoutPlan();
+    }
+    for (GridPlan p : recorded)
+      checkState(p != null, "layout plan has unclosed grid");
+    mGridPlans = recorded.toArray(new GridPlan[0]);
+  }
+
+  /**
+   * Recorded geometry of a single grid. Arrays with an element per view are in
+   * the order the views were added
+   */
+  static final class GridPlan {
+
+    GridPlan(int[] columnWeights, GridCell[] constraints, int[] cellRows, int[] cellEnds) {
+      this.columnWeights = columnWeights;
+      this.constraints = constraints;
+      this.cellRows = cellRows;
+      this.cellEnds = cellEnds;
+    }
+
+    int viewCount() {
+      return constraints.length;
+    }
+
+    final int[] columnWeights;
+    // Constraints for each view, or null if view has no component
+    final GridCell[] constraints;
+    // Row occupied by each view
+    final int[] cellRows;
+    // Column following the last one occupied by each view
+    final int[] cellEnds;
+  }
+
+  private final Consumer<WidgetManager> mBuilder;
+  private GridPlan[] mGridPlans;
+}
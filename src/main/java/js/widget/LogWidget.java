@@ -0,0 +1,441 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+
+/**
+ * A widget displaying text that is appended to it, e.g. log output.
+ * <p>
+ * The text is stored as a bounded ring buffer of lines; once the maximum number
+ * of lines (or characters) is exceeded, the oldest lines are discarded (and a
+ * line longer than the maximum number of characters keeps only its end). A
+ * carriage return that isn't followed by a linefeed restarts the current line,
+ * as a terminal would, which suits progress output. Text
+ * can be appended from any thread; appends are queued, and are added to the
+ * buffer on the Swing event thread at most once per display frame. Only the
+ * visible lines are drawn; there is no underlying text document
+ */
+class LogWidget extends Widget {
+
+  public LogWidget(String id, int maxLines, int maxChars, boolean timestamps, int fontSize) {
+    checkArgument(maxLines > 0 && maxChars > 0, "bad limits");
+    setId(id);
+    mMaxLines = maxLines;
+    mMaxChars = maxChars;
+    mTimestamps = timestamps;
+    mLines = new String[Math.min(maxLines, 256)];
+    mView = new LogView(WidgetManager.getFont(true, fontSize));
+    mFlushTimer = new Timer(FRAME_INTERVAL_MS, (e) -> flush());
+    mFlushTimer.setRepeats(false);
+    setComponent(new JScrollPane(mView));
+  }
+
+  @Override
+  public Object readValue() {
+    return null;
+  }
+
+  @Override
+  public void writeValue(Object v) {
+    throw notSupported("write value;", this);
+  }
+
+  /**
+   * Append text; may be called from any thread
+   */
+  @Override
+  public void appendText(String text) {
+    if (text.isEmpty())
+      return;
+    mQueue.add(new Append(System.currentTimeMillis(), text));
+    if (mFlushScheduled.compareAndSet(false, true))
+      SwingUtilities.invokeLater(() -> scheduleFlush());
+  }
+
+  /**
+   * Replace the contents with some text
+   */
+  @Override
+  public void setText(String text) {
+    flush();
+    clear();
+    appendText(text);
+    flush();
+  }
+
+  @Override
+  public String getText() {
+    flush();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < mLineCount; i++) {
+      if (i != 0)
+        sb.append('\n');
+      sb.append(line(i));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Discard all lines
+   */
+  public void clear() {
+    for (int i = 0; i < mLineCount; i++)
+      mLines[slot(i)] = null;
+    mLineCount = 0;
+    mFirstLine = 0;
+    mCharCount = 0;
+    mMaxLineLength = 0;
+    mOpenLine = null;
+    mPendingReturn = false;
+    mView.contentsChanged();
+  }
+
+  public int lineCount() {
+    return mLineCount;
+  }
+
+  // ------------------------------------------------------------------
+  // Flushing appended text to the ring buffer
+  // ------------------------------------------------------------------
+
+  private void scheduleFlush() {
+    long delay = FRAME_INTERVAL_MS - (System.currentTimeMillis() - mLastFlushTime);
+    mFlushTimer.setInitialDelay((int) Math.max(0, Math.min(delay, FRAME_INTERVAL_MS)));
+    mFlushTimer.restart();
+  }
+
+  /**
+   * Add any queued text to the buffer; must be called from the Swing event
+   * thread
+   */
+  private void flush() {
+    mFlushTimer.stop();
+    // Clear the flag before draining the queue, so that text appended while we
+    // are draining it will cause another flush to be scheduled
+    mFlushScheduled.set(false);
+    mLastFlushTime = System.currentTimeMillis();
+    if (mQueue.isEmpty())
+      return;
+    boolean atBottom = mView.scrolledToBottom();
+    Append a;
+    while ((a = mQueue.poll()) != null)
+      addText(a);
+    if (mOpenLine != null)
+      replaceLastLine(openLineText());
+    mView.contentsChanged();
+    if (atBottom)
+      mView.scrollToBottom();
+  }
+
+  private void addText(Append append) {
+    String text = append.text;
+    int cursor = 0;
+    while (cursor < text.length()) {
+      int lineEnd = text.indexOf('\n', cursor);
+      int fragmentEnd = lineEnd < 0 ? text.length() : lineEnd;
+      if (mOpenLine == null) {
+        // Reserve the line's slot in the buffer; its text is stored when it is
+        // terminated, or at the end of the flush
+        mOpenLine = new StringBuilder();
+        if (mTimestamps)
+          mOpenLine.append(TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(append.time)));
+        mOpenLinePrefixLength = mOpenLine.length();
+        addLine("");
+      }
+      appendToOpenLine(text, cursor, fragmentEnd);
+      if (lineEnd < 0)
+        break;
+      // A carriage return preceding the linefeed is discarded
+      mPendingReturn = false;
+      replaceLastLine(openLineText());
+      mOpenLine = null;
+      cursor = lineEnd + 1;
+    }
+  }
+
+  /**
+   * Append characters (which don't include a linefeed) to the open line
+   */
+  private void appendToOpenLine(String text, int start, int end) {
+    StringBuilder sb = mOpenLine;
+    while (start < end) {
+      // A carriage return restarts the line, unless it is followed by a linefeed
+      // (which may not have been appended yet)
+      if (mPendingReturn) {
+        sb.setLength(mOpenLinePrefixLength);
+        mPendingReturn = false;
+      }
+      int ret = text.indexOf('\r', start);
+      if (ret < 0 || ret >= end) {
+        sb.append(text, start, end);
+        break;
+      }
+      sb.append(text, start, ret);
+      mPendingReturn = true;
+      start = ret + 1;
+    }
+    // Discard the start of the line if it is becoming too long; it is done in
+    // chunks, so appending a character at a time isn't quadratic
+    if (sb.length() > 2 * mMaxChars) {
+      sb.delete(0, sb.length() - mMaxChars);
+      mOpenLinePrefixLength = 0;
+    }
+  }
+
+  private String openLineText() {
+    StringBuilder sb = mOpenLine;
+    return sb.length() > mMaxChars ? sb.substring(sb.length() - mMaxChars) : sb.toString();
+  }
+
+  /**
+   * Discard the start of a line if it exceeds the maximum number of characters
+   */
+  private String truncate(String line) {
+    if (line.length() > mMaxChars)
+      line = line.substring(line.length() - mMaxChars);
+    return line;
+  }
+
+  // ------------------------------------------------------------------
+  // Ring buffer
+  // ------------------------------------------------------------------
+
+  private int slot(int lineIndex) {
+    return (mFirstLine + lineIndex) % mLines.length;
+  }
+
+  private String line(int lineIndex) {
+    return mLines[slot(lineIndex)];
+  }
+
+  private void addLine(String line) {
+    if (mLineCount == mLines.length) {
+      if (mLineCount == mMaxLines)
+        removeFirstLine();
+      else
+        growBuffer();
+    }
+    line = truncate(line);
+    mLines[slot(mLineCount)] = line;
+    mLineCount++;
+    mCharCount += line.length();
+    mMaxLineLength = Math.max(mMaxLineLength, line.length());
+    trimToMaxChars();
+  }
+
+  private void replaceLastLine(String line) {
+    int s = slot(mLineCount - 1);
+    mCharCount += line.length() - mLines[s].length();
+    mLines[s] = line;
+    mMaxLineLength = Math.max(mMaxLineLength, line.length());
+    trimToMaxChars();
+  }
+
+  private void trimToMaxChars() {
+    // Always retain the most recent line (which has been truncated if necessary)
+    while (mCharCount > mMaxChars && mLineCount > 1)
+      removeFirstLine();
+  }
+
+  private void removeFirstLine() {
+    mCharCount -= mLines[mFirstLine].length();
+    mLines[mFirstLine] = null;
+    mFirstLine = (mFirstLine + 1) % mLines.length;
+    mLineCount--;
+  }
+
+  private void growBuffer() {
+    String[] lines = new String[Math.min(mMaxLines, mLines.length * 2)];
+    for (int i = 0; i < mLineCount; i++)
+      lines[i] = line(i);
+    mLines = lines;
+    mFirstLine = 0;
+  }
+
+  // ------------------------------------------------------------------
+  // Rendering
+  // ------------------------------------------------------------------
+
+  /**
+   * Component that draws the visible lines
+   */
+  private final class LogView extends JComponent implements Scrollable {
+
+    LogView(Font font) {
+      setFont(font);
+      setOpaque(true);
+      Color background = UIManager.getColor("TextArea.background");
+      setBackground(background != null ? background : Color.WHITE);
+      Color foreground = UIManager.getColor("TextArea.foreground");
+      setForeground(foreground != null ? foreground : Color.BLACK);
+    }
+
+    /**
+     * Called when the lines have changed
+     */
+    void contentsChanged() {
+      revalidate();
+      repaint();
+    }
+
+    boolean scrolledToBottom() {
+      Rectangle r = getVisibleRect();
+      return r.y + r.height >= getHeight();
+    }
+
+    void scrollToBottom() {
+      // The preferred size has changed, so lay out the viewport before
+      // scrolling it
+      JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+      if (viewport == null)
+        return;
+      viewport.validate();
+      scrollRectToVisible(new Rectangle(0, getHeight() - 1, 1, 1));
+    }
+
+    private int lineHeight() {
+      return getFontMetrics(getFont()).getHeight();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      FontMetrics fm = getFontMetrics(getFont());
+      int width = fm.charWidth('m') * Math.max(mMaxLineLength, 20) + 2 * MARGIN;
+      return new Dimension(width, Math.max(1, mLineCount) * fm.getHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+      Rectangle clip = g.getClipBounds();
+      if (clip == null)
+        clip = new Rectangle(0, 0, getWidth(), getHeight());
+      g.setColor(getBackground());
+      g.fillRect(clip.x, clip.y, clip.width, clip.height);
+      g.setColor(getForeground());
+      g.setFont(getFont());
+      FontMetrics fm = g.getFontMetrics();
+      int lineHeight = fm.getHeight();
+      int first = Math.max(0, clip.y / lineHeight);
+      int last = Math.min(mLineCount - 1, (clip.y + clip.height) / lineHeight);
+      for (int i = first; i <= last; i++)
+        g.drawString(line(i), MARGIN, i * lineHeight + fm.getAscent());
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+      return new Dimension(getPreferredSize().width, VISIBLE_LINES * lineHeight());
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+      if (orientation == SwingConstants.VERTICAL)
+        return lineHeight();
+      return getFontMetrics(getFont()).charWidth('m');
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+      if (orientation == SwingConstants.VERTICAL)
+        return Math.max(lineHeight(), visibleRect.height - lineHeight());
+      return visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+      // Fill the viewport if the lines are narrower than it
+      return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+      return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+  }
+
+  private static final class Append {
+    Append(long time, String text) {
+      this.time = time;
+      this.text = text;
+    }
+
+    final long time;
+    final String text;
+  }
+
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final int VISIBLE_LINES = 12;
+  private static final int MARGIN = 4;
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS ")
+      .withZone(ZoneId.systemDefault());
+
+  private final int mMaxLines;
+  private final int mMaxChars;
+  private final boolean mTimestamps;
+  private final LogView mView;
+
+  // These are accessed by any thread
+  private final ConcurrentLinkedQueue<Append> mQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+  // These are only accessed by the Swing event thread
+  private final Timer mFlushTimer;
+  private long mLastFlushTime;
+  private String[] mLines;
+  private int mFirstLine;
+  private int mLineCount;
+  private long mCharCount;
+  // Text of the last line, if it hasn't been terminated by a linefeed (else
+  // null)
+  private StringBuilder mOpenLine;
+  // Length of the open line's timestamp (if any)
+  private int mOpenLinePrefixLength;
+  // True if the open line ends with a carriage return
+  private boolean mPendingReturn;
+  // Length of longest line appended (since the last clear), for determining the
+  // view's width
+  private int mMaxLineLength;
+}
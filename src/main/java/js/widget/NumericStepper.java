@@ -26,6 +26,9 @@ package js.widget;
 
 import static js.base.Tools.*;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
 import js.geometry.MyMath;
 
 /**
@@ -89,23 +92,56 @@ public final class NumericStepper {
   public Number fromInternalUnits(int internalValue) {
     Number result;
     if (mIntegerFlag)
-      result = internalValue + mMinValue.intValue();
+      result = intFromInternalUnits(internalValue);
     else
-      result = (internalValue * (mMaxValue.floatValue() - mMinValue.floatValue()) / 100)
-          + mMinValue.floatValue();
+      result = floatFromInternalUnits(internalValue);
     return result;
   }
 
+  /**
+   * Convert internal units to an int, without boxing. If the values are
+   * floats, the result is truncated
+   */
+  public int intFromInternalUnits(int internalValue) {
+    if (mIntegerFlag)
+      return internalValue + mMinValue.intValue();
+    return (int) floatFromInternalUnits(internalValue);
+  }
+
+  /**
+   * Convert internal units to a float, without boxing
+   */
+  public float floatFromInternalUnits(int internalValue) {
+    if (mIntegerFlag)
+      return intFromInternalUnits(internalValue);
+    return (internalValue * (mMaxValue.floatValue() - mMinValue.floatValue()) / 100) + mMinValue.floatValue();
+  }
+
   public int toInternalUnits(Number ourValue) {
-    int result;
     if (ourValue == null)
       ourValue = def();
     if (mIntegerFlag)
-      result = ourValue.intValue() - mMinValue.intValue();
-    else
-      result = (int) ((100 * (ourValue.floatValue() - mMinValue.floatValue()))
-          / (mMaxValue.floatValue() - mMinValue.floatValue()));
-    return result;
+      return toInternalUnits(ourValue.intValue());
+    return toInternalUnits(ourValue.floatValue());
+  }
+
+  /**
+   * Convert an int to internal units, without boxing
+   */
+  public int toInternalUnits(int ourValue) {
+    if (mIntegerFlag)
+      return ourValue - mMinValue.intValue();
+    return toInternalUnits((float) ourValue);
+  }
+
+  /**
+   * Convert a float to internal units, without boxing. If the values are
+   * integers, the value is truncated
+   */
+  public int toInternalUnits(float ourValue) {
+    if (mIntegerFlag)
+      return toInternalUnits((int) ourValue);
+    return (int) ((100 * (ourValue - mMinValue.floatValue())) / (mMaxValue.floatValue() - mMinValue.floatValue()));
   }
 
   public Number clampValueIntoRange(Number value) {
@@ -157,26 +193,102 @@ public final class NumericStepper {
     return toInternalUnits(max());
   }
 
+  /**
+   * Format a value for display. The result is identical to that of
+   * String.format() with the format string returned by formatString(), but
+   * integers and floats are written directly into a reusable buffer (so this
+   * method is not thread safe)
+   */
   public String formatNumber(Number displayValue) {
+    if (mIntegerFlag) {
+      if (displayValue instanceof Integer || displayValue instanceof Short || displayValue instanceof Byte)
+        return formatFixedPoint(displayValue.intValue() < 0, Math.abs((long) displayValue.intValue()), 0);
+    } else if (displayValue instanceof Float) {
+      float value = displayValue.floatValue();
+      // The scaled value is exact, as a float's significand has 24 bits, and the
+      // scale factor (at most 100) has 7
+      double scaled = Math.abs((double) value) * FRACTION_SCALES[mFractionDigits];
+      if (scaled < MAX_SCALED_VALUE) {
+        // Round half up, as Formatter does; and a negative value that rounds to
+        // zero (including -0) still gets a minus sign
+        return formatFixedPoint(Float.floatToRawIntBits(value) < 0, (long) Math.floor(scaled + 0.5),
+            mFractionDigits);
+      }
+    }
     return String.format(mFormatString, displayValue);
   }
 
+  /**
+   * Get the format string that formatNumber() emulates
+   */
+  String formatString() {
+    return mFormatString;
+  }
+
+  /**
+   * Write a (scaled) value into the buffer, right justified, using the digits
+   * and decimal separator of the default locale, as Formatter does
+   */
+  private String formatFixedPoint(boolean negative, long magnitude, int fractionDigits) {
+    Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    if (locale != mLocale) {
+      DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+      mZeroDigit = symbols.getZeroDigit();
+      mDecimalSeparator = symbols.getDecimalSeparator();
+      mLocale = locale;
+    }
+    char[] buffer = mBuffer;
+    int cursor = buffer.length;
+    for (int i = 0; i < fractionDigits; i++) {
+      buffer[--cursor] = (char) (mZeroDigit + (int) (magnitude % 10));
+      magnitude /= 10;
+    }
+    if (fractionDigits > 0)
+      buffer[--cursor] = mDecimalSeparator;
+    do {
+      buffer[--cursor] = (char) (mZeroDigit + (int) (magnitude % 10));
+      magnitude /= 10;
+    } while (magnitude != 0);
+    if (negative)
+      buffer[--cursor] = '-';
+    int start = Math.max(0, buffer.length - mFormatWidth);
+    while (cursor > start)
+      buffer[--cursor] = ' ';
+    return new String(buffer, cursor, buffer.length - cursor);
+  }
+
   private void determineFormatString() {
     int maxIntegerDigits = Math.max(numberOfDigits(mMinValue.intValue()),
         numberOfDigits(mMaxValue.intValue()));
     if (isInt()) {
       mFormatString = "%" + maxIntegerDigits + "d";
+      mFormatWidth = maxIntegerDigits;
       mMaxDisplayedCharacters = maxIntegerDigits;
     } else {
       int fracDigits = Math.max(0, 3 - maxIntegerDigits);
       mFormatString = "%" + (maxIntegerDigits + fracDigits) + "." + fracDigits + "f";
+      mFormatWidth = maxIntegerDigits + fracDigits;
+      mFractionDigits = fracDigits;
       int maxDigits = maxIntegerDigits;
       if (fracDigits > 0)
         maxDigits += 1 + fracDigits;
       mMaxDisplayedCharacters = maxDigits;
     }
+    // Room for the padding, sign, digits (a long has at most 19) and separator
+    mBuffer = new char[Math.max(mFormatWidth, 21 + mFractionDigits)];
   }
 
+  // Scale factors for each possible number of fraction digits
+  private static final double[] FRACTION_SCALES = { 1, 10, 100 };
+  // Larger scaled values (which may not be exact integers) are formatted by String.format()
+  private static final double MAX_SCALED_VALUE = 1L << 52;
+
   private String mFormatString;
+  private int mFormatWidth;
+  private int mFractionDigits;
   private int mMaxDisplayedCharacters;
+  private char[] mBuffer;
+  private Locale mLocale;
+  private char mZeroDigit;
+  private char mDecimalSeparator;
 }
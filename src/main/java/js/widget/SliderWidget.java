@@ -52,8 +52,21 @@ class SliderWidget extends Widget implements ChangeListener {
   @Override
   public void stateChanged(ChangeEvent e) {
     updateDisplayValue();
-    notifyListener();
-    notifyApp();
+    // Ignore changes while the user is still dragging the knob, if requested
+    if (mSettledOnly && getSlider().getValueIsAdjusting())
+      return;
+    notifyUserChange();
+    // Report the settled value without waiting for any rate limit
+    if (mSettledOnly)
+      flushUserChanges();
+  }
+
+  /**
+   * Specify whether changes made by the user are reported only once the user
+   * has stopped dragging the knob
+   */
+  public void setSettledOnly(boolean state) {
+    mSettledOnly = state;
   }
 
   private void updateDisplayValue() {
@@ -70,7 +83,10 @@ class SliderWidget extends Widget implements ChangeListener {
 
   @Override
   public void setValue(Number number) {
-    var internalValue = mStepper.toInternalUnits(number);
+    setInternalValue(mStepper.toInternalUnits(number));
+  }
+
+  private void setInternalValue(int internalValue) {
     getSlider().getModel().setValue(internalValue);
     updateDisplayValue();
     notifyListener();
@@ -89,7 +105,28 @@ class SliderWidget extends Widget implements ChangeListener {
     setValue(number);
   }
 
+  @Override
+  public int readInt() {
+    return mStepper.intFromInternalUnits(getSlider().getModel().getValue());
+  }
+
+  @Override
+  public double readDouble() {
+    return mStepper.floatFromInternalUnits(getSlider().getModel().getValue());
+  }
+
+  @Override
+  public void writeInt(int v) {
+    setInternalValue(mStepper.toInternalUnits(v));
+  }
+
+  @Override
+  public void writeDouble(double v) {
+    setInternalValue(mStepper.toInternalUnits((float) v));
+  }
+
   private NumericStepper mStepper;
   private JTextField mDisplay;
   private JSlider mSlider;
+  private boolean mSettledOnly;
 }
\ No newline at end of file
@@ -65,8 +65,7 @@ class SpinnerWidget extends Widget implements ChangeListener {
 
   @Override
   public void stateChanged(ChangeEvent e) {
-    notifyListener();
-    notifyApp();
+    notifyUserChange();
   }
 
   @Override
@@ -81,9 +80,32 @@ class SpinnerWidget extends Widget implements ChangeListener {
   }
 
 
+  @Override
+  public int readInt() {
+    return ((Number) spinner().getModel().getValue()).intValue();
+  }
+
+  @Override
+  public double readDouble() {
+    return readInt();
+  }
+
+  @Override
+  public void writeInt(int v) {
+    setInternalValue(mStepper.toInternalUnits(v));
+  }
+
+  @Override
+  public void writeDouble(double v) {
+    writeInt((int) v);
+  }
+
   @Override
   public void setValue(Number number) {
-    var internalValue = mStepper.toInternalUnits(number);
+    setInternalValue(mStepper.toInternalUnits(number));
+  }
+
+  private void setInternalValue(int internalValue) {
     spinner().getModel().setValue(internalValue);
     notifyListener();
   }
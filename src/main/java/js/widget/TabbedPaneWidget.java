@@ -25,6 +25,9 @@ public class TabbedPaneWidget extends Widget implements ChangeListener {
 
   @Override
   public void stateChanged(ChangeEvent e) {
+    WidgetManager manager = manager();
+    if (manager != null)
+      manager.tabSelected(tabbedPane().getSelectedComponent());
     notifyListener();
     notifyApp();
   }
@@ -1,5 +1,6 @@
 package js.widget;
 
+import static js.base.Tools.*;
 import static js.widget.SwingUtils.*;
 
 import java.awt.Font;
@@ -8,6 +9,8 @@ import javax.swing.JComponent;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.JTextComponent;
@@ -31,6 +34,7 @@ class TextWidget extends Widget implements DocumentListener {
     }
     textComponent.setEditable(editable);
     textComponent.setText(defaultValue);
+    mEditable = editable;
     if (editable) {
       registerListener(listener);
       textComponent.getDocument().addDocumentListener(this);
@@ -50,6 +54,16 @@ class TextWidget extends Widget implements DocumentListener {
   @Override
   public void setText(String text) {
     textComponent().setText(text);
+    if (!mEditable) {
+      // Non-editable components have no document listener to report this
+      valueChanged();
+      return;
+    }
+    // If a batch of updates is in progress, report the change now so that it
+    // is included in the batch, instead of after the batch has ended
+    WidgetManager manager = manager();
+    if (manager != null && manager.updating())
+      sendEvent();
   }
 
   @Override
@@ -59,7 +73,13 @@ class TextWidget extends Widget implements DocumentListener {
 
   @Override
   public void insertUpdate(DocumentEvent e) {
-    commonUpdateHandler();
+    int offset = e.getOffset();
+    int length = e.getLength();
+    if (mChangePending) {
+      mPendingStart = shiftForInsert(mPendingStart, offset, length);
+      mPendingEnd = shiftForInsert(mPendingEnd, offset, length);
+    }
+    addPendingRange(offset, offset + length);
   }
 
   @Override
@@ -74,20 +94,100 @@ class TextWidget extends Widget implements DocumentListener {
 
   @Override
   public void removeUpdate(DocumentEvent e) {
-    commonUpdateHandler();
+    int offset = e.getOffset();
+    int length = e.getLength();
+    if (mChangePending) {
+      mPendingStart = shiftForRemove(mPendingStart, offset, length);
+      mPendingEnd = shiftForRemove(mPendingEnd, offset, length);
+    }
+    addPendingRange(offset, offset);
   }
 
   @Override
   public void changedUpdate(DocumentEvent e) {
-    commonUpdateHandler();
+    addPendingRange(e.getOffset(), e.getOffset() + e.getLength());
+  }
+
+  // ------------------------------------------------------------------
+  // Coalescing document changes
+  // ------------------------------------------------------------------
+
+  // Document changes are merged into a single widget event, which is sent
+  // once the current turn of the Swing event loop is finished (or, if a
+  // debounce period has been set, once no changes have occurred for that
+  // period). The event's changed range is the smallest range of the text that
+  // includes all the merged changes
+
+  /**
+   * Set the period without document changes to wait before sending a widget
+   * event, or zero to send it at the end of the current event loop turn
+   */
+  public void setDebounceMs(int debounceMs) {
+    checkArgument(debounceMs >= 0, "bad debounce period:", debounceMs);
+    // Send any event that is waiting using the old period
+    sendEvent();
+    mDebounceMs = debounceMs;
+    if (mTimer != null) {
+      mTimer.stop();
+      mTimer = null;
+    }
+    if (debounceMs > 0) {
+      mTimer = new Timer(debounceMs, (e) -> sendEvent());
+      mTimer.setRepeats(false);
+    }
+  }
+
+  @Override
+  public int changeStart() {
+    return mChangeStart;
+  }
+
+  @Override
+  public int changeEnd() {
+    return mChangeEnd;
+  }
+
+  private static int shiftForInsert(int position, int offset, int length) {
+    return position >= offset ? position + length : position;
+  }
+
+  private static int shiftForRemove(int position, int offset, int length) {
+    if (position >= offset + length)
+      return position - length;
+    return Math.min(position, offset);
+  }
+
+  private void addPendingRange(int start, int end) {
+    if (!mChangePending) {
+      mChangePending = true;
+      mPendingStart = start;
+      mPendingEnd = end;
+      if (mDebounceMs == 0)
+        SwingUtilities.invokeLater(() -> sendEvent());
+    } else {
+      mPendingStart = Math.min(mPendingStart, start);
+      mPendingEnd = Math.max(mPendingEnd, end);
+    }
+    if (mDebounceMs > 0)
+      mTimer.restart();
   }
 
-  private void commonUpdateHandler() {
-    //      if (key() != null) {
-    //        storeValueToStateMap(manager().stateMap(), textComponent().getText());
-    //      }
+  private void sendEvent() {
+    if (!mChangePending)
+      return;
+    mChangePending = false;
+    mChangeStart = mPendingStart;
+    mChangeEnd = mPendingEnd;
     notifyListener();
   }
 
   private JTextComponent mTextComponent;
+  private boolean mEditable;
+  private int mDebounceMs;
+  private Timer mTimer;
+  private boolean mChangePending;
+  // Range that has changed since the last event, if mChangePending
+  private int mPendingStart, mPendingEnd;
+  // Range reported by the last event
+  private int mChangeStart, mChangeEnd;
 }
\ No newline at end of file
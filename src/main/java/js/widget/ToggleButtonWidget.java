@@ -14,8 +14,8 @@ class ToggleButtonWidget extends Widget {
     setComponent(component);
     component.addActionListener((x) ->
     {
-      notifyApp();
       notifyListener();
+      notifyApp();
     });
   }
 
@@ -35,6 +35,7 @@ class ToggleButtonWidget extends Widget {
   public void setChecked(boolean state) {
     JCheckBox component = swingComponent();
     component.setSelected(state);
+    valueChanged();
   }
 
   @Override
@@ -0,0 +1,516 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import js.geometry.MyMath;
+
+/**
+ * A scrolling list of rows, each consisting of a label and a text field or
+ * checkbox, that can contain a very large number of rows.
+ * <p>
+ * The rows' labels and values are stored in a compact model (a set of arrays);
+ * Swing components are only constructed for the rows that are visible, and are
+ * recycled as the list is scrolled. Each row is represented by a lightweight
+ * widget (with no component) so its value can be accessed by id in the usual
+ * way
+ */
+final class VirtualListWidget extends Widget {
+
+  static final int TYPE_TEXT = 0;
+  static final int TYPE_BOOLEAN = 1;
+  static final int TYPE_INT = 2;
+
+  public VirtualListWidget() {
+    mRowsPanel = new RowsPanel();
+    JScrollPane scrollPane = new JScrollPane(mRowsPanel, JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+        JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+    scrollPane.getViewport().addChangeListener((e) -> updateVisibleRows());
+    setComponent(scrollPane);
+  }
+
+  @Override
+  public Object readValue() {
+    return null;
+  }
+
+  @Override
+  public void writeValue(Object v) {
+    throw notSupported("write value;", this);
+  }
+
+  /**
+   * Add a row
+   *
+   * @return widget representing the row
+   */
+  public Widget addRow(String id, String label, int type, Object defaultValue, int minValue, int maxValue,
+      WidgetListener listener) {
+    int index = mRowCount;
+    if (index == mLabels.length)
+      growModel();
+    mLabels[index] = label;
+    mTypes[index] = (byte) type;
+    mMinValues[index] = minValue;
+    mMaxValues[index] = maxValue;
+    switch (type) {
+    case TYPE_TEXT:
+      mStrings[index] = nullTo((String) defaultValue, "");
+      break;
+    case TYPE_BOOLEAN:
+      mInts[index] = (defaultValue != null && (Boolean) defaultValue) ? 1 : 0;
+      break;
+    case TYPE_INT:
+      mInts[index] = MyMath.clamp(defaultValue == null ? 0 : ((Number) defaultValue).intValue(), minValue,
+          maxValue);
+      break;
+    default:
+      throw badArg("unsupported row type:", type);
+    }
+    RowWidget w = new RowWidget(this, index, listener);
+    w.setId(id);
+    mRowWidgets[index] = w;
+    mRowCount++;
+    mRowsPanel.revalidate();
+    return w;
+  }
+
+  public int rowCount() {
+    return mRowCount;
+  }
+
+  /**
+   * Set the number of rows to be visible without scrolling
+   */
+  public void setVisibleRowCount(int count) {
+    checkArgument(count > 0);
+    mVisibleRowCount = count;
+    mRowsPanel.revalidate();
+  }
+
+  // ------------------------------------------------------------------
+  // Model
+  // ------------------------------------------------------------------
+
+  private void growModel() {
+    int capacity = Math.max(16, mLabels.length * 2);
+    mLabels = copyOf(mLabels, new String[capacity]);
+    mStrings = copyOf(mStrings, new String[capacity]);
+    mRowWidgets = copyOf(mRowWidgets, new RowWidget[capacity]);
+    byte[] types = new byte[capacity];
+    System.arraycopy(mTypes, 0, types, 0, mRowCount);
+    mTypes = types;
+    mInts = copyOf(mInts, capacity);
+    mMinValues = copyOf(mMinValues, capacity);
+    mMaxValues = copyOf(mMaxValues, capacity);
+  }
+
+  private <T> T[] copyOf(T[] source, T[] dest) {
+    System.arraycopy(source, 0, dest, 0, mRowCount);
+    return dest;
+  }
+
+  private int[] copyOf(int[] source, int capacity) {
+    int[] dest = new int[capacity];
+    System.arraycopy(source, 0, dest, 0, mRowCount);
+    return dest;
+  }
+
+  private Object value(int index) {
+    switch (mTypes[index]) {
+    case TYPE_TEXT:
+      return mStrings[index];
+    case TYPE_BOOLEAN:
+      return mInts[index] != 0;
+    default:
+      return mInts[index];
+    }
+  }
+
+  /**
+   * Store a row's value
+   *
+   * @return true if it has changed
+   */
+  private boolean setValue(int index, Object value) {
+    switch (mTypes[index]) {
+    case TYPE_TEXT: {
+      String s = nullTo((String) value, "");
+      if (s.equals(mStrings[index]))
+        return false;
+      mStrings[index] = s;
+      return true;
+    }
+    case TYPE_BOOLEAN:
+      return setInt(index, ((Boolean) value) ? 1 : 0);
+    default:
+      return setInt(index, ((Number) value).intValue());
+    }
+  }
+
+  private boolean setInt(int index, int value) {
+    if (mTypes[index] == TYPE_INT)
+      value = MyMath.clamp(value, mMinValues[index], mMaxValues[index]);
+    if (mInts[index] == value)
+      return false;
+    mInts[index] = value;
+    return true;
+  }
+
+  private String displayValue(int index) {
+    if (mTypes[index] == TYPE_TEXT)
+      return mStrings[index];
+    return Integer.toString(mInts[index]);
+  }
+
+  /**
+   * Called when a row's value has been changed programmatically
+   */
+  private void valueWritten(int index) {
+    for (RowView view : mRowViews)
+      if (view.index == index)
+        view.bind(index);
+  }
+
+  /**
+   * Called when the user has edited a row's value
+   */
+  private void valueEdited(int index, Object value) {
+    if (setValue(index, value))
+      mRowWidgets[index].edited();
+  }
+
+  private void textEdited(int index, String text) {
+    if (mTypes[index] == TYPE_TEXT) {
+      valueEdited(index, text);
+      return;
+    }
+    // Ignore text that isn't (yet) a valid integer
+    try {
+      valueEdited(index, Integer.parseInt(text.trim()));
+    } catch (NumberFormatException e) {
+    }
+  }
+
+  // ------------------------------------------------------------------
+  // Views
+  // ------------------------------------------------------------------
+
+  private int rowHeight() {
+    if (mRowHeight == 0)
+      mRowHeight = new RowView().getPreferredSize().height;
+    return mRowHeight;
+  }
+
+  /**
+   * Ensure that each visible row has a view bound to it, recycling those views
+   * that are no longer visible
+   */
+  private void updateVisibleRows() {
+    JViewport viewport = (JViewport) mRowsPanel.getParent();
+    if (viewport == null)
+      return;
+    Rectangle r = viewport.getViewRect();
+    int rowHeight = rowHeight();
+    int first = Math.max(0, r.y / rowHeight);
+    int last = Math.min(mRowCount - 1, (r.y + r.height - 1) / rowHeight);
+    int width = mRowsPanel.getWidth();
+
+    // Release views for rows that are no longer visible
+    List<RowView> free = arrayList();
+    for (RowView view : mRowViews) {
+      if (view.index < first || view.index > last || view.index >= mRowCount) {
+        view.index = -1;
+        free.add(view);
+      }
+    }
+
+    // Bind views to visible rows that don't have them
+    for (int index = first; index <= last; index++) {
+      RowView view = viewForRow(index);
+      if (view == null) {
+        if (free.isEmpty()) {
+          view = new RowView();
+          mRowViews.add(view);
+          mRowsPanel.add(view);
+        } else
+          view = pop(free);
+        view.bind(index);
+      }
+      view.setBounds(0, index * rowHeight, width, rowHeight);
+      view.setVisible(true);
+    }
+
+    for (RowView view : free)
+      view.setVisible(false);
+  }
+
+  private RowView viewForRow(int index) {
+    for (RowView view : mRowViews)
+      if (view.index == index)
+        return view;
+    return null;
+  }
+
+  /**
+   * Container for the row views, which sits within the scroll pane's viewport
+   */
+  private final class RowsPanel extends JPanel implements Scrollable {
+
+    RowsPanel() {
+      super(null);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      return new Dimension(LABEL_WIDTH + FIELD_WIDTH, mRowCount * rowHeight());
+    }
+
+    @Override
+    public void doLayout() {
+      updateVisibleRows();
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+      return new Dimension(getPreferredSize().width, mVisibleRowCount * rowHeight());
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+      return rowHeight();
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+      if (orientation == SwingConstants.VERTICAL)
+        return Math.max(rowHeight(), visibleRect.height - rowHeight());
+      return visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+      return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+      return false;
+    }
+  }
+
+  /**
+   * View of a single row, which can be bound to any row
+   */
+  private final class RowView extends JPanel implements DocumentListener {
+
+    RowView() {
+      super(null);
+      mLabel.setHorizontalAlignment(SwingConstants.RIGHT);
+      add(mLabel);
+      add(mTextField);
+      add(mCheckBox);
+      mTextField.getDocument().addDocumentListener(this);
+      mCheckBox.addActionListener((e) -> {
+        if (!mBinding && index >= 0)
+          valueEdited(index, mCheckBox.isSelected());
+      });
+    }
+
+    void bind(int rowIndex) {
+      index = rowIndex;
+      mBinding = true;
+      try {
+        mLabel.setText(mLabels[rowIndex]);
+        boolean isBoolean = mTypes[rowIndex] == TYPE_BOOLEAN;
+        mCheckBox.setVisible(isBoolean);
+        mTextField.setVisible(!isBoolean);
+        if (isBoolean)
+          mCheckBox.setSelected(mInts[rowIndex] != 0);
+        else {
+          String text = displayValue(rowIndex);
+          if (!text.equals(mTextField.getText()))
+            mTextField.setText(text);
+        }
+      } finally {
+        mBinding = false;
+      }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      Dimension labelSize = mLabel.getPreferredSize();
+      Dimension fieldSize = mTextField.getPreferredSize();
+      return new Dimension(LABEL_WIDTH + FIELD_WIDTH,
+          Math.max(labelSize.height, Math.max(fieldSize.height, mCheckBox.getPreferredSize().height)));
+    }
+
+    @Override
+    public void doLayout() {
+      int labelWidth = Math.min(LABEL_WIDTH, getWidth() / 2);
+      int gap = 4;
+      mLabel.setBounds(0, 0, labelWidth - gap, getHeight());
+      mTextField.setBounds(labelWidth, 0, getWidth() - labelWidth, getHeight());
+      mCheckBox.setBounds(labelWidth, 0, getWidth() - labelWidth, getHeight());
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+      textChanged();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+      textChanged();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+      textChanged();
+    }
+
+    private void textChanged() {
+      if (!mBinding && index >= 0)
+        textEdited(index, mTextField.getText());
+    }
+
+    // Index of row bound to this view, or -1
+    int index = -1;
+    private boolean mBinding;
+    private final JLabel mLabel = new JLabel();
+    private final JTextField mTextField = new JTextField();
+    private final JCheckBox mCheckBox = new JCheckBox();
+  }
+
+  /**
+   * Widget representing a single row; it has no component of its own
+   */
+  private static final class RowWidget extends Widget {
+
+    RowWidget(VirtualListWidget list, int index, WidgetListener listener) {
+      mList = list;
+      mIndex = index;
+      registerListener(listener);
+    }
+
+    @Override
+    public JComponent componentForTooltip() {
+      return null;
+    }
+
+    @Override
+    public Object readValue() {
+      return mList.value(mIndex);
+    }
+
+    @Override
+    public int readInt() {
+      if (mList.mTypes[mIndex] == TYPE_TEXT)
+        return super.readInt();
+      return mList.mInts[mIndex];
+    }
+
+    @Override
+    public double readDouble() {
+      return readInt();
+    }
+
+    @Override
+    public void writeValue(Object v) {
+      if (mList.setValue(mIndex, v)) {
+        mList.valueWritten(mIndex);
+        valueChanged();
+      }
+    }
+
+    @Override
+    public boolean isChecked() {
+      return mList.mInts[mIndex] != 0;
+    }
+
+    @Override
+    public void setChecked(boolean state) {
+      writeValue(state);
+    }
+
+    @Override
+    public String getText() {
+      return mList.displayValue(mIndex);
+    }
+
+    @Override
+    public void setText(String text) {
+      writeValue(text);
+    }
+
+    /**
+     * Called when the user has edited the value
+     */
+    void edited() {
+      notifyListener();
+      notifyApp();
+    }
+
+    private final VirtualListWidget mList;
+    private final int mIndex;
+  }
+
+  private static final int LABEL_WIDTH = 160;
+  private static final int FIELD_WIDTH = 120;
+
+  private final RowsPanel mRowsPanel;
+  private final List<RowView> mRowViews = arrayList();
+  private int mRowHeight;
+  private int mVisibleRowCount = 20;
+
+  // The model: parallel arrays, with an element per row
+  private int mRowCount;
+  private String[] mLabels = new String[0];
+  private byte[] mTypes = new byte[0];
+  // Value of text rows
+  private String[] mStrings = new String[0];
+  // Value of boolean (0 or 1) and int rows
+  private int[] mInts = new int[0];
+  private int[] mMinValues = new int[0];
+  private int[] mMaxValues = new int[0];
+  private RowWidget[] mRowWidgets = new RowWidget[0];
+}
@@ -25,11 +25,13 @@ package js.widget;
 
 import static js.base.Tools.*;
 
+import java.util.function.Consumer;
+
 import javax.swing.JComponent;
 
 import js.app.App;
+import js.guiapp.DirtyRegions;
 import js.guiapp.GUIApp;
-import js.guiapp.UserEvent;
 
 /**
  * Abstract class representing a user interface element
@@ -64,6 +66,36 @@ public abstract class Widget {
 
   public abstract void writeValue(Object v);
 
+  /**
+   * Read the value of a numeric widget as an int. Widgets that store numeric
+   * values should override this (and the other primitive accessors) to avoid
+   * boxing; the default implementation calls readValue()
+   */
+  public int readInt() {
+    return ((Number) readValue()).intValue();
+  }
+
+  /**
+   * Read the value of a numeric widget as a double
+   */
+  public double readDouble() {
+    return ((Number) readValue()).doubleValue();
+  }
+
+  /**
+   * Write the value of a numeric widget as an int
+   */
+  public void writeInt(int v) {
+    writeValue(v);
+  }
+
+  /**
+   * Write the value of a numeric widget as a double
+   */
+  public void writeDouble(double v) {
+    writeValue(v);
+  }
+
   public static void setTextIfExists(Widget widget, String text) {
     if (widget != null)
       widget.setText(text);
@@ -77,29 +109,115 @@ public abstract class Widget {
     mListener = listener;
   }
 
-  private WidgetManager widgets() {
-    GUIApp app = App.sharedInstance();
-    return app.widgetManager();
+  /**
+   * Get the WidgetManager to report events to: the one this widget was added
+   * to, or (if it has no id) the app's
+   */
+  private WidgetManager eventManager() {
+    WidgetManager manager = manager();
+    if (manager == null) {
+      GUIApp app = App.sharedInstance();
+      if (app != null)
+        manager = app.widgetManager();
+    }
+    return manager;
   }
 
   /**
    * Notify WidgetListener, if there is one, of an event involving this widget
    */
   protected final void notifyListener() {
-    if (mListener != null)
-      widgets().notifyWidgetListener(this, mListener);
+    valueChanged();
+    if (mListener == null)
+      return;
+    WidgetManager manager = eventManager();
+    if (manager != null)
+      manager.notifyWidgetListener(this, mListener);
   }
 
-
   /**
-   * Call the app's userEventManagerListener with a widget event,
-   * so that e.g. the main view can be re-rendered to reflect an updated
-   * widget value
+   * Call the app's userEventManagerListener with a widget event, so that e.g.
+   * the main view can be re-rendered to reflect an updated widget value. This
+   * should be called after notifyListener(), which records the change
    */
   protected final void notifyApp() {
-    //pr("notifyApp of widget event, id:",id());
-    GUIApp app = App.sharedInstance();
-    app.userEventManagerListener(UserEvent.widgetEvent(id()));
+    WidgetManager manager = eventManager();
+    if (manager != null)
+      manager.notifyApp(this);
+  }
+
+  /**
+   * Limit the rate at which changes made by the user are reported via
+   * notifyUserChange(); the most recent change is always reported, once the
+   * rate allows. A rate of zero removes the limit
+   */
+  public final void setEventRateLimit(int maxEventsPerSecond) {
+    checkArgument(maxEventsPerSecond >= 0, "bad rate:", maxEventsPerSecond);
+    // Don't lose an event that the existing limit is holding back
+    flushUserChanges();
+    if (maxEventsPerSecond == 0)
+      mThrottle = null;
+    else
+      mThrottle = new EventThrottle(maxEventsPerSecond, () -> {
+        notifyListener();
+        notifyApp();
+      });
+  }
+
+  /**
+   * Notify the WidgetListener and the app of a change made by the user,
+   * subject to any rate limit
+   */
+  protected final void notifyUserChange() {
+    if (mThrottle != null) {
+      mThrottle.eventOccurred();
+      return;
+    }
+    notifyListener();
+    notifyApp();
+  }
+
+  /**
+   * Report any change made by the user that a rate limit is holding back,
+   * without waiting for the rate to allow it
+   */
+  protected final void flushUserChanges() {
+    if (mThrottle != null)
+      mThrottle.flush();
+  }
+
+  /**
+   * Record that this widget's value has (or may have) changed, for
+   * WidgetManager.readChangedWidgetValues(). Called by notifyListener() (once
+   * per event); subclasses whose values can change without calling it should
+   * call this directly
+   */
+  protected final void valueChanged() {
+    if (mManager != null)
+      mManager.widgetChanged(this);
+  }
+
+  final void setManager(WidgetManager manager) {
+    mManager = manager;
+  }
+
+  /**
+   * Get the WidgetManager this widget was added to, or null if it has no id
+   */
+  final WidgetManager manager() {
+    return mManager;
+  }
+
+  /**
+   * Get the WidgetManager version number at the time of this widget's most
+   * recent change
+   */
+  final long version() {
+    return mVersion;
+  }
+
+  final void setVersion(long version) {
+    mVersion = version;
   }
 
   @Override
@@ -193,11 +311,45 @@ public abstract class Widget {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Get the start of the range of the value (e.g. the characters of a text
+   * widget) that changed since the previous event, for widgets that support
+   * this
+   */
+  public int changeStart() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Get the end (exclusive) of the range of the value that changed since the
+   * previous event
+   */
+  public int changeEnd() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Specify a function that reports the regions of the app's panels that need
+   * repainting when this widget changes (see WidgetManager.addDirtyRegions())
+   */
+  public final Widget setDirtyRegionReporter(Consumer<DirtyRegions> reporter) {
+    mDirtyRegionReporter = reporter;
+    return this;
+  }
+
+  final Consumer<DirtyRegions> dirtyRegionReporter() {
+    return mDirtyRegionReporter;
+  }
+
   private String className() {
     return getClass().getSimpleName();
   }
 
   private WidgetListener mListener;
+  private EventThrottle mThrottle;
   private JComponent mWrappedComponent;
+  private WidgetManager mManager;
+  private long mVersion;
+  private Consumer<DirtyRegions> mDirtyRegionReporter;
 
 }
@@ -0,0 +1,59 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+/**
+ * A reference to a widget that has already been looked up by its id, for
+ * reading or writing its value without further lookups. Each subclass
+ * corresponds to a kind of value (see WidgetManager.intHandle(),
+ * textHandle(), etc.), and verifies when it is constructed that the widget
+ * holds that kind of value
+ */
+public abstract class WidgetHandle {
+
+  WidgetHandle(Widget widget) {
+    mWidget = widget;
+  }
+
+  /**
+   * Verify that the widget's current value is of the expected kind
+   */
+  final void checkValue(boolean valid, String kind) {
+    checkState(valid, "widget", mWidget.id(), "doesn't have", kind, "value:", mWidget.readValue());
+  }
+
+  public final Widget widget() {
+    return mWidget;
+  }
+
+  @Override
+  public String toString() {
+    return mWidget.toString();
+  }
+
+  private final Widget mWidget;
+}
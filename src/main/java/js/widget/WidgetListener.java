@@ -24,6 +24,8 @@
  **/
 package js.widget;
 
+import java.util.List;
+
 /**
  * Widget listener interface
  */
@@ -33,4 +35,18 @@ public interface WidgetListener {
    * Called when an event has occurred with widget
    */
   void widgetEvent(String widgetId);
+
+  /**
+   * Called once at the end of a batch of updates (see
+   * WidgetManager.beginUpdate()) with the ids of the widgets involved in events
+   * during the batch. The default implementation calls widgetEvent() for each
+   * one; WidgetManager does this itself (so that eventSource() returns the
+   * appropriate widget for each call) if this method is not overridden.
+   * WidgetManager.eventSource() is not available within an overriding
+   * implementation
+   */
+  default void widgetsChanged(List<String> widgetIds) {
+    for (String id : widgetIds)
+      widgetEvent(id);
+  }
 }
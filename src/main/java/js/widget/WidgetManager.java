@@ -26,22 +26,31 @@ package js.widget;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
-import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
 import java.awt.LayoutManager;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.SortedMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.concurrent.ThreadLocalRandom;
 
 import javax.swing.*;
 import javax.swing.border.CompoundBorder;
 
+import js.app.App;
 import js.base.BaseObject;
 import js.data.DataUtil;
 import js.geometry.IPoint;
 import js.geometry.MyMath;
+import js.guiapp.DirtyRegions;
+import js.guiapp.DispatchMonitor;
+import js.guiapp.GUIApp;
+import js.guiapp.UserEvent;
 import js.json.JSMap;
 import js.parsing.RegExp;
 
@@ -54,11 +63,8 @@ import static js.widget.SwingUtils.*;
 public final class WidgetManager extends BaseObject {
 
   public void dump() {
-    for (var ent : mWidgetMap.entrySet()) {
-      var w = ent.getValue();
-      pr(ent.getKey(), "=>", w.getClass());
-    }
-
+    for (Widget w : sortedWidgets())
+      pr(w.id(), "=>", w.getClass());
   }
 
   /**
@@ -76,21 +82,163 @@ public final class WidgetManager extends BaseObject {
     mActive = state;
   }
 
+  // ------------------------------------------------------------------
+  // Headless mode
+  // ------------------------------------------------------------------
+
+  /**
+   * Put this manager into headless mode. The same calls can then be used to
+   * construct a user interface, but no Swing components are created; widgets
+   * hold their values only, and the layout (grid positions, spans, and
+   * weights) is available via layoutTree(). Must be called before any widgets
+   * are added.
+   * <p>
+   * A headless manager doesn't share any mutable state with other managers, so
+   * separate threads can each construct layouts with their own
+   */
+  public WidgetManager setHeadless() {
+    checkState(mWidgetMap.isEmpty() && mPanelStack.isEmpty(), "widgets have already been added");
+    mHeadless = true;
+    return this;
+  }
+
+  public boolean headless() {
+    return mHeadless;
+  }
+
+  /**
+   * Get the layout tree for the most recently opened top-level container
+   */
+  public LayoutNode layoutTree() {
+    checkState(mHeadless, "not headless");
+    checkState(mLayoutRoot != null, "no layout constructed");
+    return mLayoutRoot;
+  }
+
+  /**
+   * Add a widget for headless mode
+   */
+  private WidgetManager addHeadless(String kind, String id, Object value, String label) {
+    HeadlessWidget w = new HeadlessWidget(kind, consumePendingListener(), value);
+    w.node().setLabel(label);
+    if (id != null)
+      w.setId(id);
+    return add(w);
+  }
+
+  /**
+   * Get the node representing a widget within the layout tree
+   */
+  private static LayoutNode layoutNode(Widget widget) {
+    LayoutNode node;
+    if (widget instanceof HeadlessWidget)
+      node = ((HeadlessWidget) widget).node();
+    else
+      node = new LayoutNode(widget.component() == null ? "gap" : widget.getClass().getSimpleName());
+    if (widget.hasId())
+      node.setWidgetId(widget.id());
+    return node;
+  }
+
+  /**
+   * Determine if a widget exists. This includes widgets within lazy tabs that
+   * declared their ids, though these tabs are not built by this method
+   */
   public boolean exists(String id) {
-    return (find(id) != null);
+    return find(id) != null || mLazyTabIds.containsKey(id);
   }
 
   public Widget get(String id) {
-    Widget w = find(id);
+    Widget w = resolve(id);
     if (w == null)
-      badState("Can't find widget with id:", id, INDENT, mWidgetMap.keySet());
+      badState("Can't find widget with id:", id, INDENT, sortedIds());
     return w;
   }
 
+  // Handles to widgets, for reading or writing their values without further
+  // lookups by id. Each verifies that the widget has the corresponding kind of
+  // value
+
+  public IntHandle intHandle(String id) {
+    return new IntHandle(get(id));
+  }
+
+  public FloatHandle floatHandle(String id) {
+    return new FloatHandle(get(id));
+  }
+
+  public TextHandle textHandle(String id) {
+    return new TextHandle(get(id));
+  }
+
+  public BooleanHandle booleanHandle(String id) {
+    return new BooleanHandle(get(id));
+  }
+
   private Widget find(String id) {
     return mWidgetMap.get(id);
   }
 
+  /**
+   * Find a widget; if it doesn't exist, it may be within a lazy tab that hasn't
+   * been built yet. If a tab declared the id, build that tab; otherwise, build
+   * those tabs that didn't declare their ids until it is found
+   */
+  private Widget resolve(String id) {
+    Widget w = find(id);
+    if (w != null || mLazyTabs.isEmpty() || !canBuildLazyTab())
+      return w;
+    LazyTab declaringTab = mLazyTabIds.get(id);
+    if (declaringTab != null) {
+      log("building lazy tab to resolve id:", id);
+      buildLazyTab(declaringTab);
+      return find(id);
+    }
+    if (mUndeclaredLazyTabCount == 0)
+      return null;
+    List<LazyTab> tabs = arrayList();
+    tabs.addAll(mLazyTabs.values());
+    for (LazyTab tab : tabs) {
+      if (tab.widgetIds != null)
+        continue;
+      log("building lazy tab to resolve id:", id);
+      buildLazyTab(tab);
+      w = find(id);
+      if (w != null)
+        break;
+    }
+    return w;
+  }
+
+  /**
+   * Determine if a widget that hasn't been constructed yet may be within a lazy
+   * tab
+   */
+  private boolean mayBeInLazyTab(String id) {
+    return mLazyTabIds.containsKey(id) || mUndeclaredLazyTabCount > 0;
+  }
+
+  /**
+   * Get the widgets that have ids, sorted by id. The list is cached until
+   * another widget is added
+   */
+  private List<Widget> sortedWidgets() {
+    if (mSortedWidgets == null) {
+      List<Widget> widgets = arrayList();
+      widgets.addAll(mWidgetMap.values());
+      widgets.sort((a, b) -> a.id().compareTo(b.id()));
+      mSortedWidgets = widgets;
+    }
+    return mSortedWidgets;
+  }
+
+  private List<String> sortedIds() {
+    List<String> ids = arrayList();
+    for (Widget w : sortedWidgets())
+      ids.add(w.id());
+    return ids;
+  }
+
   // ------------------------------------------------------------------
   // Accessing widget values
   // ------------------------------------------------------------------
@@ -100,11 +248,25 @@ public final class WidgetManager extends BaseObject {
    * state
    */
   public void setWidgetValues(JSMap map) {
-    for (Map.Entry<String, Object> entry : map.wrappedMap().entrySet()) {
-      String id = entry.getKey();
-      if (!exists(id))
-        continue;
-      get(id).writeValue(entry.getValue());
+    beginUpdate();
+    try {
+      for (Map.Entry<String, Object> entry : map.wrappedMap().entrySet()) {
+        Object value = entry.getValue();
+        Widget w = find(entry.getKey());
+        if (w == null) {
+          // The widget may be within a lazy tab that hasn't been built yet;
+          // store the value in a placeholder until it is
+          if (mayBeInLazyTab(entry.getKey()))
+            addPlaceholder(entry.getKey(), value);
+          continue;
+        }
+        if (value.equals(w.readValue()))
+          continue;
+        w.writeValue(value);
+        recordBatchedEvent(w, null);
+      }
+    } finally {
+      endUpdate();
     }
   }
 
@@ -114,11 +276,47 @@ public final class WidgetManager extends BaseObject {
    */
   public JSMap readWidgetValues() {
     JSMap m = map();
-    for (Map.Entry<String, Widget> ent : mWidgetMap.entrySet()) {
-      String id = ent.getKey();
+    for (Widget g : sortedWidgets()) {
+      String id = g.id();
+      if (id.charAt(0) == '.')
+        continue;
+      Object v = g.readValue();
+      if (v != null)
+        m.putUnsafe(id, v);
+    }
+    return m;
+  }
+
+  /**
+   * Get the current version number, which is incremented whenever a widget is
+   * added or its value changes
+   */
+  public long version() {
+    return mVersion;
+  }
+
+  /**
+   * Read the values of widgets that have been added or changed since a
+   * particular version. Typical usage:
+   *
+   * <pre>
+   *
+   *    long newVersion = widgets.version();
+   *    JSMap delta = widgets.readChangedWidgetValues(lastVersion);
+   *    lastVersion = newVersion;
+   *
+   * </pre>
+   *
+   * readChangedWidgetValues(0) returns the same values as readWidgetValues(),
+   * but in the order the widgets were most recently changed, not in order of
+   * their ids
+   */
+  public JSMap readChangedWidgetValues(long sinceVersion) {
+    JSMap m = map();
+    for (Widget g : mChangedWidgets.tailMap(sinceVersion, false).values()) {
+      String id = g.id();
       if (id.charAt(0) == '.')
         continue;
-      Widget g = ent.getValue();
       Object v = g.readValue();
       if (v != null)
         m.putUnsafe(id, v);
@@ -126,6 +324,33 @@ public final class WidgetManager extends BaseObject {
     return m;
   }
 
+  /**
+   * Record that a widget has been added, or its value has changed
+   */
+  void widgetChanged(Widget widget) {
+    if (!widget.hasId())
+      return;
+    long previousVersion = widget.version();
+    if (previousVersion != 0)
+      mChangedWidgets.remove(previousVersion);
+    mVersion++;
+    widget.setVersion(mVersion);
+    mChangedWidgets.put(mVersion, widget);
+    for (Runnable observer : mChangeObservers)
+      observer.run();
+  }
+
+  /**
+   * Add an observer to be called whenever the version number changes
+   */
+  void addChangeObserver(Runnable observer) {
+    mChangeObservers.add(observer);
+  }
+
+  void removeChangeObserver(Runnable observer) {
+    mChangeObservers.remove(observer);
+  }
+
   /**
    * Get value of string-valued widget
    */
@@ -174,14 +399,14 @@ public final class WidgetManager extends BaseObject {
    * Get value of integer-valued widget
    */
   public int vi(String id) {
-    return numValue(id).intValue();
+    return get(id).readInt();
   }
 
   /**
    * Set value of integer-valued widget
    */
   public int seti(String id, int v) {
-    get(id).writeValue(v);
+    get(id).writeInt(v);
     return v;
   }
 
@@ -189,14 +414,14 @@ public final class WidgetManager extends BaseObject {
    * Get value of double-valued widget
    */
   public double vd(String id) {
-    return numValue(id).doubleValue();
+    return get(id).readDouble();
   }
 
   /**
    * Set value of double-valued widget
    */
   public double setd(String id, double v) {
-    get(id).writeValue(v);
+    get(id).writeDouble(v);
     return v;
   }
 
@@ -204,7 +429,7 @@ public final class WidgetManager extends BaseObject {
    * Get value of float-valued widget
    */
   public float vf(String id) {
-    return numValue(id).floatValue();
+    return (float) get(id).readDouble();
   }
 
   /**
@@ -214,10 +439,6 @@ public final class WidgetManager extends BaseObject {
     return setd(id, v);
   }
 
-  private Number numValue(String id) {
-    return (Number) get(id).readValue();
-  }
-
   // ---------------------------------------------------------------------
   // Composing
   // ---------------------------------------------------------------------
@@ -250,6 +471,18 @@ public final class WidgetManager extends BaseObject {
    */
   public final WidgetManager columns(String columnsExpr) {
     checkState(mPendingColumnWeights == null, "previous column weights were never used");
+    mPendingColumnWeights = parseColumns(columnsExpr);
+    return this;
+  }
+
+  /**
+   * Parse a columns expression. The results are cached, and must be considered
+   * READ ONLY
+   */
+  private static int[] parseColumns(String columnsExpr) {
+    int[] weights = sColumnsCache.get(columnsExpr);
+    if (weights != null)
+      return weights;
 
     List<Integer> columnSizes = arrayList();
     for (String word : split(columnsExpr, ' ')) {
@@ -257,7 +490,7 @@ public final class WidgetManager extends BaseObject {
         columnSizes.add(Integer.parseInt(word));
       } else {
         for (int i = 0; i < word.length(); i++) {
-          char c = columnsExpr.charAt(i);
+          char c = word.charAt(i);
           int size;
           if (c == '.') {
             size = 0;
@@ -270,10 +503,13 @@ public final class WidgetManager extends BaseObject {
         }
       }
     }
-    mPendingColumnWeights = DataUtil.intArray(columnSizes);
-    return this;
+    weights = DataUtil.intArray(columnSizes);
+    sColumnsCache.put(columnsExpr, weights);
+    return weights;
   }
 
+  private static final Map<String, int[]> sColumnsCache = new ConcurrentHashMap<>();
+
   /**
    * Make next component added occupy remaining columns in its row
    */
@@ -452,6 +688,16 @@ public final class WidgetManager extends BaseObject {
     return this;
   }
 
+  /**
+   * Specify function to report the regions of the app's panels that need
+   * repainting when the next widget changes (see addDirtyRegions())
+   */
+  public WidgetManager dirtyRegions(Consumer<DirtyRegions> reporter) {
+    checkState(mPendingDirtyRegionReporter == null, "already a pending dirty region reporter");
+    mPendingDirtyRegionReporter = reporter;
+    return this;
+  }
+
   /**
    * Specify listener to add to following widgets. Must be balanced by call to
    * popListener()
@@ -540,6 +786,36 @@ public final class WidgetManager extends BaseObject {
     return this;
   }
 
+  /**
+   * Limit the rate at which the next widget (a slider or spinner) reports
+   * changes made by the user; the most recent change is always reported
+   */
+  public WidgetManager rateLimit(int maxEventsPerSecond) {
+    checkArgument(maxEventsPerSecond > 0, "bad rate:", maxEventsPerSecond);
+    mPendingRateLimit = maxEventsPerSecond;
+    return this;
+  }
+
+  /**
+   * Make the next text widget wait until no edits have occurred for a period
+   * before reporting them (instead of at the end of the current event loop
+   * turn)
+   */
+  public WidgetManager debounce(int ms) {
+    checkArgument(ms > 0, "bad debounce period:", ms);
+    mPendingDebounceMs = ms;
+    return this;
+  }
+
+  /**
+   * Make the next slider report changes only when the user has stopped
+   * dragging it
+   */
+  public WidgetManager settledOnly() {
+    mPendingSettledOnly = true;
+    return this;
+  }
+
   public WidgetManager stepSize(double value) {
     floats();
     mPendingStepSize = value;
@@ -575,6 +851,24 @@ public final class WidgetManager extends BaseObject {
     return v;
   }
 
+  private int consumePendingRateLimit() {
+    Integer n = mPendingRateLimit;
+    mPendingRateLimit = null;
+    return n == null ? 0 : n;
+  }
+
+  private int consumePendingDebounceMs() {
+    Integer n = mPendingDebounceMs;
+    mPendingDebounceMs = null;
+    return n == null ? 0 : n;
+  }
+
+  private boolean consumePendingSettledOnly() {
+    boolean v = nullToFalse(mPendingSettledOnly);
+    mPendingSettledOnly = null;
+    return v;
+  }
+
   public boolean consumePendingWithDisplay() {
     boolean v = nullToFalse(mPendingWithDisplay);
     mPendingWithDisplay = null;
@@ -593,7 +887,7 @@ public final class WidgetManager extends BaseObject {
   private String consumePendingLabel(boolean required) {
     String lbl = mPendingLabel;
     mPendingLabel = null;
-    if (nullOrEmpty(lbl))
+    if (nullOrEmpty(lbl) && required)
       badState("missing label");
     return lbl;
   }
@@ -658,6 +952,9 @@ public final class WidgetManager extends BaseObject {
     verifyUsed(mPendingStepSize, "mPendingStepSize");
     verifyUsed(mPendingFloatingPoint, "mPendingFloatingPoint");
     verifyUsed(mPendingWithDisplay, "mPendingWithDisplay");
+    verifyUsed(mPendingRateLimit, "mPendingRateLimit");
+    verifyUsed(mPendingSettledOnly, "mPendingSettledOnly");
+    verifyUsed(mPendingDebounceMs, "mPendingDebounceMs");
 
     mPendingContainer = null;
     mPendingColumnWeights = null;
@@ -680,6 +977,9 @@ public final class WidgetManager extends BaseObject {
     mPendingLabel = null;
     mPendingStepSize = null;
     mPendingWithDisplay = null;
+    mPendingRateLimit = null;
+    mPendingSettledOnly = null;
+    mPendingDebounceMs = null;
     mPendingFloatingPoint = null;
   }
 
@@ -695,13 +995,189 @@ public final class WidgetManager extends BaseObject {
   public void notifyWidgetListener(Widget widget, WidgetListener listener) {
     if (!active())
       return;
+    if (updating()) {
+      recordBatchedEvent(widget, listener);
+      return;
+    }
     Widget previousListener = mListenerWidget;
+    DispatchMonitor monitor = DispatchMonitor.sharedInstance();
+    long startTime = monitor.begin(DispatchMonitor.CATEGORY_WIDGET_LISTENER);
     try {
       mLastWidgetEventTime = System.currentTimeMillis();
       mListenerWidget = widget;
       listener.widgetEvent(widget.id());
     } finally {
       mListenerWidget = previousListener;
+      monitor.end(startTime);
+    }
+  }
+
+  /**
+   * Report the regions of the app's panels that need repainting as a result of
+   * changes to some widgets, using the widgets' dirty region reporters. If any
+   * of the widgets has no reporter, nothing is reported (so the panels are
+   * repainted entirely, unless the current operation reports some regions)
+   */
+  public void addDirtyRegions(List<String> widgetIds, DirtyRegions regions) {
+    for (String id : widgetIds) {
+      Widget w = find(id);
+      if (w == null || w.dirtyRegionReporter() == null)
+        return;
+    }
+    for (String id : widgetIds)
+      find(id).dirtyRegionReporter().accept(regions);
+  }
+
+  // ------------------------------------------------------------------
+  // Batched updates
+  // ------------------------------------------------------------------
+
+  /**
+   * Begin a batch of updates. Until the matching call to endUpdate(), widget
+   * listeners and the app are not notified of widget events; instead, the
+   * widgets involved are recorded. Batches can be nested
+   */
+  public void beginUpdate() {
+    mUpdateDepth++;
+  }
+
+  /**
+   * End a batch of updates. If this ends the outermost batch, each listener
+   * that would have been notified during the batch receives a single
+   * widgetsChanged() call, and the app receives a single widget event listing
+   * all the widgets involved
+   *
+   * @return ids of widgets involved in the batch (empty if this doesn't end the
+   *         outermost batch)
+   */
+  public List<String> endUpdate() {
+    checkState(mUpdateDepth > 0, "no update in progress");
+    if (--mUpdateDepth > 0)
+      return arrayList();
+
+    List<String> changedIds = arrayList();
+    changedIds.addAll(mBatchedIds);
+    Map<WidgetListener, Set<String>> listenerIds = mBatchedListenerIds;
+    mBatchedIds = new LinkedHashSet<>();
+    mBatchedListenerIds = new LinkedHashMap<>();
+
+    // Notify every listener (and the app), even if one of them fails; the first
+    // failure is rethrown afterward
+    RuntimeException failure = null;
+    for (Map.Entry<WidgetListener, Set<String>> ent : listenerIds.entrySet()) {
+      List<String> ids = arrayList();
+      ids.addAll(ent.getValue());
+      try {
+        deliverBatch(ent.getKey(), ids);
+      } catch (RuntimeException e) {
+        if (failure == null)
+          failure = e;
+      }
+    }
+    if (!changedIds.isEmpty()) {
+      GUIApp app = owningApp();
+      if (app != null)
+        app.userEventManagerListener(UserEvent.widgetBatchEvent(changedIds));
+    }
+    if (failure != null)
+      throw failure;
+    return changedIds;
+  }
+
+  /**
+   * Notify a listener of the widgets involved in a batch. If the listener
+   * doesn't override widgetsChanged(), its widgetEvent() is called for each
+   * widget, with eventSource() returning that widget (as in
+   * notifyWidgetListener()); otherwise, eventSource() is unavailable within its
+   * widgetsChanged()
+   */
+  private void deliverBatch(WidgetListener listener, List<String> ids) {
+    Widget previousListener = mListenerWidget;
+    DispatchMonitor monitor = DispatchMonitor.sharedInstance();
+    long startTime = monitor.begin(DispatchMonitor.CATEGORY_WIDGET_LISTENER);
+    try {
+      mLastWidgetEventTime = System.currentTimeMillis();
+      if (handlesBatches(listener)) {
+        mListenerWidget = null;
+        listener.widgetsChanged(ids);
+      } else {
+        for (String id : ids) {
+          mListenerWidget = find(id);
+          listener.widgetEvent(id);
+        }
+      }
+    } finally {
+      mListenerWidget = previousListener;
+      monitor.end(startTime);
+    }
+  }
+
+  /**
+   * Determine if a listener overrides WidgetListener.widgetsChanged()
+   */
+  private static boolean handlesBatches(WidgetListener listener) {
+    return sBatchHandlerClasses.computeIfAbsent(listener.getClass(), (c) -> {
+      try {
+        return c.getMethod("widgetsChanged", List.class).getDeclaringClass() != WidgetListener.class;
+      } catch (NoSuchMethodException e) {
+        throw asRuntimeException(e);
+      }
+    });
+  }
+
+  private static final Map<Class<?>, Boolean> sBatchHandlerClasses = new ConcurrentHashMap<>();
+
+  /**
+   * Notify the app of an event involving a widget (or record it, if a batch of
+   * updates is in progress)
+   */
+  void notifyApp(Widget widget) {
+    if (updating()) {
+      recordBatchedEvent(widget, null);
+      return;
+    }
+    GUIApp app = owningApp();
+    if (app != null)
+      app.userEventManagerListener(UserEvent.widgetEvent(widget.id()));
+  }
+
+  /**
+   * Get the running app that this is the WidgetManager of, or null if there is
+   * no such app (or this manager is headless)
+   */
+  private GUIApp owningApp() {
+    if (mHeadless)
+      return null;
+    App app = App.sharedInstance();
+    if (!(app instanceof GUIApp))
+      return null;
+    GUIApp guiApp = (GUIApp) app;
+    return guiApp.widgetManager() == this ? guiApp : null;
+  }
+
+  /**
+   * Determine if a batch of updates is in progress
+   */
+  public boolean updating() {
+    return mUpdateDepth > 0;
+  }
+
+  /**
+   * Record a widget event that occurred during a batch of updates
+   *
+   * @param listener
+   *          listener to be notified, or null
+   */
+  void recordBatchedEvent(Widget widget, WidgetListener listener) {
+    String id = widget.id();
+    mBatchedIds.add(id);
+    if (listener != null) {
+      Set<String> ids = mBatchedListenerIds.get(listener);
+      if (ids == null) {
+        ids = new LinkedHashSet<>();
+        mBatchedListenerIds.put(listener, ids);
+      }
+      ids.add(id);
     }
   }
 
@@ -778,7 +1254,11 @@ public final class WidgetManager extends BaseObject {
     log2("openTabSet", selectTabKey);
     Grid grid = new Grid();
     grid.setContext(selectTabKey);
-    grid.setWidget(new TabbedPaneWidget(consumePendingListener(), selectTabKey));
+    grid.setTabSet();
+    if (mHeadless)
+      grid.setWidget(new HeadlessWidget("tab_set", consumePendingListener(), null).setId(selectTabKey));
+    else
+      grid.setWidget(new TabbedPaneWidget(consumePendingListener(), selectTabKey));
     add(grid.widget());
     mPanelStack.add(grid);
     log2("added grid to panel stack for tab set");
@@ -804,9 +1284,163 @@ public final class WidgetManager extends BaseObject {
     return this;
   }
 
+  /**
+   * Add a tab to the current TabSet whose contents are constructed only when
+   * it is first selected (or when one of its widgets is accessed by id).
+   * <p>
+   * The builder is called with the tab's grid open (as if by openTab()), and
+   * should add the tab's widgets to it; it shouldn't call closeTab(). Any
+   * pending column weights, and the current listener, are applied when the tab
+   * is built
+   *
+   * If the ids of the tab's widgets are given, then accessing one of them by id
+   * builds only this tab; otherwise, such an access (of a widget that doesn't
+   * exist yet) builds each tab that didn't declare its ids until it is found
+   *
+   * @param tabTitle
+   *          label for tab; see openTab()
+   * @param widgetIds
+   *          ids of the widgets that the builder adds (optional)
+   */
+  public WidgetManager addLazyTab(String tabTitle, Consumer<WidgetManager> builder, String... widgetIds) {
+    log2("addLazyTab", tabTitle);
+    checkState(!mPanelStack.isEmpty() && last(mPanelStack).isTabSet(),
+        "not within a tab set");
+    if (mHeadless) {
+      // There are no Swing components to defer constructing
+      WidgetListener listener = consumePendingListener();
+      if (listener != null)
+        pushListener(listener);
+      openTab(tabTitle);
+      builder.accept(this);
+      closeTab();
+      if (listener != null)
+        popListener();
+      return this;
+    }
+    LazyTab tab = new LazyTab();
+    tab.builder = checkNotNull(builder);
+    tab.panel = new JPanel();
+    tab.columnWeights = mPendingColumnWeights;
+    mPendingColumnWeights = null;
+    tab.listener = consumePendingListener();
+    if (widgetIds.length != 0) {
+      tab.widgetIds = widgetIds;
+      for (String id : widgetIds) {
+        if (find(id) != null || mLazyTabIds.containsKey(id))
+          badState("attempt to declare widget id:", id, "that already exists");
+        mLazyTabIds.put(id, tab);
+      }
+    } else
+      mUndeclaredLazyTabCount++;
+    mLazyTabs.put(tab.panel, tab);
+    mPendingTabTitle = tabTitle;
+    add(wrap(tab.panel));
+    return this;
+  }
+
+  /**
+   * Called by TabbedPaneWidget when a tab is selected
+   */
+  void tabSelected(Component tabComponent) {
+    LazyTab tab = mLazyTabs.get(tabComponent);
+    if (tab == null)
+      return;
+    // If we're still constructing the user interface, wait until we're done
+    // (see finish() and endLayoutPlan())
+    if (canBuildLazyTab())
+      buildLazyTab(tab);
+    else
+      mSelectedLazyTab = tab;
+  }
+
+  /**
+   * Build the lazy tab that was selected while the user interface was being
+   * constructed, if there is one and it can be built now
+   */
+  private void buildSelectedLazyTab() {
+    LazyTab tab = mSelectedLazyTab;
+    if (tab == null || !canBuildLazyTab())
+      return;
+    mSelectedLazyTab = null;
+    buildLazyTab(tab);
+  }
+
+  private boolean canBuildLazyTab() {
+    return mPanelStack.isEmpty() && mReplayPlans == null && mRecordedPlans == null;
+  }
+
+  private void buildLazyTab(LazyTab tab) {
+    checkState(canBuildLazyTab(), "can't build lazy tab now");
+    if (mLazyTabs.remove(tab.panel) == null)
+      return;
+    if (mSelectedLazyTab == tab)
+      mSelectedLazyTab = null;
+    if (tab.widgetIds != null) {
+      for (String id : tab.widgetIds)
+        mLazyTabIds.remove(id);
+    } else
+      mUndeclaredLazyTabCount--;
+    log2("building lazy tab");
+    clearPendingComponentFields();
+    if (tab.listener != null)
+      pushListener(tab.listener);
+    beginUpdate();
+    try {
+      mPendingColumnWeights = tab.columnWeights;
+      setPendingContainer(tab.panel);
+      open("lazy tab");
+      tab.builder.accept(this);
+      close("lazy tab");
+    } finally {
+      endUpdate();
+    }
+    if (tab.listener != null)
+      popListener();
+    finish();
+    tab.panel.revalidate();
+    tab.panel.repaint();
+
+    // Any remaining placeholders for the ids this tab declared don't correspond
+    // to actual widgets; nor do any at all, once all lazy tabs have been built
+    if (tab.widgetIds != null) {
+      for (String id : tab.widgetIds)
+        if (mPlaceholderIds.remove(id)) {
+          Widget placeholder = mWidgetMap.remove(id);
+          mChangedWidgets.remove(placeholder.version());
+          mSortedWidgets = null;
+        }
+    }
+    if (mLazyTabs.isEmpty()) {
+      for (String id : mPlaceholderIds) {
+        Widget placeholder = mWidgetMap.remove(id);
+        mChangedWidgets.remove(placeholder.version());
+      }
+      mPlaceholderIds.clear();
+      mSortedWidgets = null;
+    }
+  }
+
+  /**
+   * Add a placeholder for a widget that hasn't been constructed yet
+   */
+  private void addPlaceholder(String id, Object value) {
+    log("adding placeholder for:", id);
+    registerWidget(new HiddenWidget(value).setId(id));
+    mPlaceholderIds.add(id);
+  }
+
+  private static final class LazyTab {
+    Consumer<WidgetManager> builder;
+    JPanel panel;
+    int[] columnWeights;
+    WidgetListener listener;
+    String[] widgetIds;
+  }
+
   public WidgetManager closeTabSet() {
     Grid parent = last(mPanelStack);
-    if (!(parent.widget() instanceof TabbedPaneWidget))
+    if (!parent.isTabSet())
       badState("attempt to close tab set, current is:", parent.widget().id());
     close("tab set");
     return this;
@@ -816,6 +1450,8 @@ public final class WidgetManager extends BaseObject {
    * Add a colored panel, for test purposes
    */
   public WidgetManager debPanel() {
+    if (mHeadless)
+      return addHeadless("debug_panel", null, null, null);
     return add(wrap(colorPanel()));
   }
 
@@ -833,20 +1469,40 @@ public final class WidgetManager extends BaseObject {
         columns("x");
       grid.setColumnSizes(mPendingColumnWeights);
       mPendingColumnWeights = null;
+      if (mReplayPlans != null) {
+        if (mReplayCursor >= mReplayPlans.length)
+          badState("layout differs from plan; too many grids");
+        LayoutPlan.GridPlan plan = mReplayPlans[mReplayCursor++];
+        if (!Arrays.equals(plan.columnWeights, grid.columnSizes()))
+          badState("layout differs from plan; columns for grid:", debugContext);
+        grid.setPlan(plan);
+      } else if (mRecordedPlans != null) {
+        grid.setPlanIndex(mRecordedPlans.size());
+        mRecordedPlans.add(null);
+      }
 
-      JComponent panel;
-      if (mPendingContainer != null) {
-        panel = mPendingContainer;
-        log2("pending container:", panel.getClass());
+      if (mHeadless) {
         mPendingContainer = null;
+        HeadlessWidget w = new HeadlessWidget("panel", null, null);
+        w.node().setColumnWeights(grid.columnSizes());
+        grid.setWidget(w);
+        if (mPanelStack.isEmpty())
+          mLayoutRoot = w.node();
       } else {
-        log2("constructing JPanel");
-        panel = new JPanel();
-        applyMinDimensions(panel, mPendingMinWidthEm, mPendingMinHeightEm);
+        JComponent panel;
+        if (mPendingContainer != null) {
+          panel = mPendingContainer;
+          log2("pending container:", panel.getClass());
+          mPendingContainer = null;
+        } else {
+          log2("constructing JPanel");
+          panel = new JPanel();
+          applyMinDimensions(panel, mPendingMinWidthEm, mPendingMinHeightEm);
+        }
+        panel.setLayout(buildLayout());
+        addStandardBorderForSpacing(panel);
+        grid.setWidget(wrap(panel));
       }
-      panel.setLayout(buildLayout());
-      addStandardBorderForSpacing(panel);
-      grid.setWidget(wrap(panel));
     }
     add(grid.widget());
     mPanelStack.add(grid);
@@ -872,11 +1528,46 @@ public final class WidgetManager extends BaseObject {
       log2("close", debugContext, compInfo(gridComponent(parent)));
     endRow();
 
-    if (!(parent.widget() instanceof TabbedPaneWidget))
-      assignViewsToGridLayout(parent);
+    if (!parent.isTabSet()) {
+      if (mHeadless)
+        buildLayoutNode(parent);
+      else if (parent.plan() != null)
+        assignViewsToGridLayout(parent, parent.plan());
+      else
+        assignViewsToGridLayout(parent);
+    }
     return this;
   }
 
+  // ------------------------------------------------------------------
+  // Layout plans
+  // ------------------------------------------------------------------
+
+  /**
+   * Start applying a LayoutPlan
+   *
+   * @param replayPlans
+   *          if not null, the previously recorded grid geometry to be used
+   * @param recordedPlans
+   *          if not null, list to store recorded grid geometry within
+   */
+  void startLayoutPlan(LayoutPlan.GridPlan[] replayPlans, List<LayoutPlan.GridPlan> recordedPlans) {
+    checkState(mReplayPlans == null && mRecordedPlans == null, "already applying a layout plan");
+    mReplayPlans = replayPlans;
+    mReplayCursor = 0;
+    mRecordedPlans = recordedPlans;
+  }
+
+  void endLayoutPlan() {
+    LayoutPlan.GridPlan[] replayPlans = mReplayPlans;
+    int cursor = mReplayCursor;
+    mReplayPlans = null;
+    mRecordedPlans = null;
+    if (replayPlans != null && cursor != replayPlans.length)
+      badState("layout differs from plan; expected", replayPlans.length, "grids, got", cursor);
+    buildSelectedLazyTab();
+  }
+
   /**
    * Verify that no unused 'pending' arguments exist, calls are balanced, etc
    */
@@ -886,6 +1577,9 @@ public final class WidgetManager extends BaseObject {
       badState("panel stack nonempty; size:", mPanelStack.size());
     if (!mListenerStack.isEmpty())
       badState("listener stack nonempty; size:", mListenerStack.size());
+    if (mVirtualList != null)
+      badState("virtual list wasn't closed");
+    buildSelectedLazyTab();
     return this;
   }
 
@@ -902,14 +1596,23 @@ public final class WidgetManager extends BaseObject {
   }
 
   public WidgetManager addText(String id) {
+    if (mVirtualList != null)
+      return addVirtualRow(id, VirtualListWidget.TYPE_TEXT, consumePendingStringDefaultValue(), 0, 0);
+    if (mHeadless) {
+      consumePendingDebounceMs();
+      return addHeadless("text", id, nullTo(consumePendingStringDefaultValue(), ""), null);
+    }
     TextWidget t = new TextWidget(consumePendingListener(), id, consumePendingStringDefaultValue(),
         mLineCount, mEditableFlag, mPendingSize, mPendingMonospaced, mPendingMinWidthEm, mPendingMinHeightEm);
+    t.setDebounceMs(consumePendingDebounceMs());
     consumeTooltip(t);
     return add(t);
   }
 
   public WidgetManager addHeader(String text) {
     spanx();
+    if (mHeadless)
+      return addHeadless("header", null, null, text);
     JLabel label = new JLabel(text);
     label.setBorder(
         new CompoundBorder(buildStandardBorderWithZeroBottom(), BorderFactory.createEtchedBorder()));
@@ -922,6 +1625,8 @@ public final class WidgetManager extends BaseObject {
    * Add a horizontal space to occupy cell(s) in place of other widgets
    */
   public WidgetManager addHorzSpace() {
+    if (mHeadless)
+      return addHeadless("horz_space", null, null, null);
     add(wrap(new JPanel()));
     return this;
   }
@@ -932,6 +1637,8 @@ public final class WidgetManager extends BaseObject {
    */
   public WidgetManager addHorzSep() {
     spanx();
+    if (mHeadless)
+      return addHeadless("horz_sep", null, null, null);
     add(wrap(new JSeparator(JSeparator.HORIZONTAL)));
     return this;
   }
@@ -942,6 +1649,8 @@ public final class WidgetManager extends BaseObject {
   public WidgetManager addVertSep() {
     spanx();
     growY();
+    if (mHeadless)
+      return addHeadless("vert_sep", null, null, null);
     add(wrap(new JSeparator(JSeparator.VERTICAL)));
     return this;
   }
@@ -950,6 +1659,10 @@ public final class WidgetManager extends BaseObject {
    * Add a row that can stretch vertically to occupy the available space
    */
   public WidgetManager addVertGrow() {
+    if (mHeadless) {
+      spanx().growY();
+      return addHeadless("vert_grow", null, null, null);
+    }
     JComponent panel;
     if (verbose())
       panel = colorPanel();
@@ -964,21 +1677,43 @@ public final class WidgetManager extends BaseObject {
    * Add widget to view hierarchy
    */
   public WidgetManager add(Widget widget) {
+    registerWidget(widget);
+    JComponent tooltipOwner = widget.componentForTooltip();
+    if (tooltipOwner != null)
+      consumeTooltip(tooltipOwner);
+    addView(widget);
+    return this;
+  }
+
+  /**
+   * Register a widget's id, if it has one
+   */
+  private void registerWidget(Widget widget) {
     String id = null;
     if (widget.hasId())
       id = widget.id();
     log2("add widget", id != null ? id : "<anon>");
+    if (id == null)
+      return;
 
-    if (id != null) {
-      if (exists(widget.id()))
-        badState("attempt to add widget id:", widget.id(), "that already exists");
-      mWidgetMap.put(id, widget);
+    Widget placeholder = null;
+    if (mPlaceholderIds.remove(id)) {
+      placeholder = find(id);
+      mChangedWidgets.remove(placeholder.version());
+    } else if (find(id) != null)
+      badState("attempt to add widget id:", widget.id(), "that already exists");
+    mWidgetMap.put(id, widget);
+    mSortedWidgets = null;
+    widget.setManager(this);
+    if (mPendingDirtyRegionReporter != null) {
+      widget.setDirtyRegionReporter(mPendingDirtyRegionReporter);
+      mPendingDirtyRegionReporter = null;
     }
-    JComponent tooltipOwner = widget.componentForTooltip();
-    if (tooltipOwner != null)
-      consumeTooltip(tooltipOwner);
-    addView(widget);
-    return this;
+    widgetChanged(widget);
+
+    // If the widget is replacing a placeholder, give it the placeholder's value
+    if (placeholder != null)
+      widget.writeValue(placeholder.readValue());
   }
 
   public WidgetManager addHidden(String id, Object defaultValue) {
@@ -986,11 +1721,18 @@ public final class WidgetManager extends BaseObject {
   }
 
   private void consumeTooltip(Widget widget) {
+    if (widget instanceof HeadlessWidget) {
+      if (mTooltip != null) {
+        ((HeadlessWidget) widget).node().setTooltip(mTooltip);
+        mTooltip = null;
+      }
+      return;
+    }
     consumeTooltip(widget.swingComponent());
   }
 
   private void consumeTooltip(JComponent component) {
-    if (mTooltip != null) {
+    if (mTooltip != null && component != null) {
       // Don't consume the tooltip if the component is a label or panel; we will
       // assume it is targeted at some later component
       if (component instanceof JPanel || component instanceof JLabel)
@@ -1020,14 +1762,28 @@ public final class WidgetManager extends BaseObject {
     // add the component to it
 
     Grid grid = last(mPanelStack);
-    if (grid.widget() instanceof TabbedPaneWidget) {
-      TabbedPaneWidget tabPane = grid.widget();
-      String tabIdNameExpression = consumePendingTabTitle(component);
+    if (grid.isTabSet()) {
+      String tabIdNameExpression = consumePendingTabTitle(widget);
       log2("adding a tab with name:", tabIdNameExpression);
+      if (mHeadless) {
+        HeadlessWidget tabSet = grid.widget();
+        tabSet.addTab(tabIdNameExpression);
+        LayoutNode node = layoutNode(widget);
+        node.setTabTitle(tabIdNameExpression);
+        tabSet.node().addChild(node);
+        return;
+      }
+      TabbedPaneWidget tabPane = grid.widget();
       tabPane.add(tabIdNameExpression, component);
       return;
     }
 
+    // If we're using a layout plan, the cell geometry is already known
+    if (grid.plan() != null) {
+      grid.addPlannedView(widget);
+      return;
+    }
+
     GridCell cell = new GridCell();
     cell.view = widget;
     IPoint nextGridCellLocation = grid.nextCellLocation();
@@ -1058,9 +1814,7 @@ public final class WidgetManager extends BaseObject {
       cell.growX = Math.max(cell.growX, colSize);
     }
 
-    // "paint" the cells this view occupies by storing a copy of the entry in each cell
-    for (int i = 0; i < cols; i++)
-      grid.addCell(cell);
+    grid.addCell(cell);
   }
 
   private int mColorIndex;
@@ -1093,6 +1847,10 @@ public final class WidgetManager extends BaseObject {
   }
 
   public WidgetManager addButton(String id) {
+    if (mHeadless) {
+      String label = consumePendingLabel(true);
+      return addHeadless("button", id, label, label);
+    }
     ButtonWidget button = new ButtonWidget(consumePendingListener(), id, consumePendingLabel(true));
     return add(button);
   }
@@ -1104,6 +1862,12 @@ public final class WidgetManager extends BaseObject {
   }
 
   public WidgetManager addToggleButton(String id) {
+    if (mVirtualList != null)
+      return addVirtualRow(id, VirtualListWidget.TYPE_BOOLEAN, consumePendingBooleanDefaultValue(), 0, 0);
+    if (mHeadless) {
+      String label = consumePendingLabel(true);
+      return addHeadless("toggle", id, consumePendingBooleanDefaultValue(), label);
+    }
     ToggleButtonWidget button = new ToggleButtonWidget(consumePendingListener(), id,
         consumePendingLabel(true), consumePendingBooleanDefaultValue());
     return add(button);
@@ -1112,32 +1876,159 @@ public final class WidgetManager extends BaseObject {
   public WidgetManager addLabel(String id) {
     String text = consumePendingLabel(true);
     log2("addLabel", id, text);
+    if (mHeadless)
+      return addHeadless("label", id, text, text);
     add(new LabelWidget(id, mPendingGravity, mLineCount, text, mPendingSize, mPendingMonospaced,
         mPendingAlignment));
     return this;
   }
 
   public WidgetManager addSpinner(String id) {
+    if (mVirtualList != null) {
+      checkState(!consumePendingFloatingPoint(), "virtual list doesn't support floating point spinners");
+      consumePendingStepSize();
+      Number min = nullTo(consumePendingMinValue(), Integer.MIN_VALUE);
+      Number max = nullTo(consumePendingMaxValue(), Integer.MAX_VALUE);
+      return addVirtualRow(id, VirtualListWidget.TYPE_INT, consumePendingDefaultValue(), min.intValue(),
+          max.intValue());
+    }
+    if (mHeadless) {
+      // Headless widgets don't generate user events
+      consumePendingRateLimit();
+      return addHeadless("spinner", id, headlessNumericValue(), null);
+    }
     SpinnerWidget spinner = new SpinnerWidget(consumePendingListener(), id, consumePendingFloatingPoint(),
         consumePendingDefaultValue(), consumePendingMinValue(), consumePendingMaxValue(),
         consumePendingStepSize());
+    spinner.setEventRateLimit(consumePendingRateLimit());
     return add(spinner);
   }
 
   public WidgetManager addSlider(String id) {
+    if (mHeadless) {
+      // Headless widgets don't generate user events
+      consumePendingWithDisplay();
+      consumePendingRateLimit();
+      consumePendingSettledOnly();
+      return addHeadless("slider", id, headlessNumericValue(), null);
+    }
     SliderWidget slider = new SliderWidget(consumePendingListener(), id, consumePendingFloatingPoint(),
         consumePendingDefaultValue(), consumePendingMinValue(), consumePendingMaxValue(),
         consumePendingWithDisplay());
+    slider.setEventRateLimit(consumePendingRateLimit());
+    slider.setSettledOnly(consumePendingSettledOnly());
     return add(slider);
   }
 
+  /**
+   * Add a LogWidget, with the default limits
+   */
+  public WidgetManager addLog(String id) {
+    return addLog(id, 10000, 1_000_000);
+  }
+
+  /**
+   * Add a LogWidget, a scrolling view that text can be appended to efficiently
+   * (from any thread) via appendText(). If withDisplay() is pending, each line
+   * is prefixed with the time it was appended
+   *
+   * @param maxLines
+   *          maximum number of lines to retain
+   * @param maxChars
+   *          maximum number of characters to retain
+   */
+  public WidgetManager addLog(String id, int maxLines, int maxChars) {
+    if (mHeadless) {
+      consumePendingWithDisplay();
+      return addHeadless("log", id, null, null);
+    }
+    return add(new LogWidget(id, maxLines, maxChars, consumePendingWithDisplay(), mPendingSize));
+  }
+
+  /**
+   * Add a FileViewerWidget, a read-only view of a (possibly very large) text
+   * file. Its value is the path of the file, which is initially the pending
+   * default value (if any)
+   */
+  public WidgetManager addFileViewer(String id) {
+    String path = consumePendingStringDefaultValue();
+    if (mHeadless)
+      return addHeadless("file_viewer", id, path, null);
+    return add(new FileViewerWidget(id, path, mPendingSize));
+  }
+
   public WidgetManager addChoiceBox(String id) {
+    if (mHeadless) {
+      int index = (mComboChoices == null || mComboChoices.size() == 0) ? -1 : 0;
+      mComboChoices = null;
+      return addHeadless("choice_box", id, index, null);
+    }
     ComboBoxWidget c = new ComboBoxWidget(consumePendingListener(), id, mComboChoices);
     mComboChoices = null;
     add(c);
     return this;
   }
 
+  // ------------------------------------------------------------------
+  // Virtual lists
+  // ------------------------------------------------------------------
+
+  /**
+   * Add a scrolling list that can hold a very large number of rows, where Swing
+   * components are only constructed for those rows that are visible. Until
+   * closeVirtualList() is called, each call to addText(), addToggleButton() or
+   * addSpinner() adds a row to the list (with the pending label, which
+   * defaults to the id) instead of a component to the current panel
+   */
+  public WidgetManager openVirtualList() {
+    checkState(mVirtualList == null, "virtual list already open");
+    Widget list = mHeadless ? new HeadlessWidget("virtual_list", null, null) : new VirtualListWidget();
+    add(list);
+    mVirtualList = list;
+    return this;
+  }
+
+  public WidgetManager closeVirtualList() {
+    checkState(mVirtualList != null, "no virtual list open");
+    mVirtualList = null;
+    return this;
+  }
+
+  private WidgetManager addVirtualRow(String id, int type, Object defaultValue, int minValue, int maxValue) {
+    String label = nullTo(consumePendingLabel(false), id);
+    Widget row;
+    if (mHeadless) {
+      Object value = defaultValue;
+      if (type == VirtualListWidget.TYPE_TEXT)
+        value = nullTo(value, "");
+      else if (type == VirtualListWidget.TYPE_INT)
+        value = MyMath.clamp(value == null ? 0 : ((Number) value).intValue(), minValue, maxValue);
+      HeadlessWidget w = new HeadlessWidget(VIRTUAL_ROW_KINDS[type], consumePendingListener(), value);
+      w.node().setLabel(label);
+      w.setId(id);
+      ((HeadlessWidget) mVirtualList).node().addChild(layoutNode(w));
+      row = w;
+    } else
+      row = ((VirtualListWidget) mVirtualList).addRow(id, label, type, defaultValue, minValue, maxValue,
+          consumePendingListener());
+    registerWidget(row);
+    clearPendingComponentFields();
+    return this;
+  }
+
+  private static final String[] VIRTUAL_ROW_KINDS = {"text", "toggle", "spinner"};
+
+  private Widget mVirtualList;
+
+  /**
+   * Determine the initial value of a headless spinner or slider, consuming the
+   * pending numeric arguments
+   */
+  private Number headlessNumericValue() {
+    return new NumericStepper(consumePendingFloatingPoint(), consumePendingDefaultValue(),
+        consumePendingMinValue(), consumePendingMaxValue(), consumePendingStepSize()).def();
+  }
+
   public void showModalErrorDialog(String message) {
     JOptionPane.showMessageDialog(getApplicationFrame(), message, "Problem", JOptionPane.ERROR_MESSAGE);
   }
@@ -1158,7 +2049,7 @@ public final class WidgetManager extends BaseObject {
   // ------------------------------------------------------------------
 
   private LayoutManager buildLayout() {
-    return new GridBagLayout();
+    return new GridCellLayout();
   }
 
   private static <T extends JComponent> T gridComponent(Grid grid) {
@@ -1171,41 +2062,68 @@ public final class WidgetManager extends BaseObject {
     Widget containerWidget = grid.widget();
     JComponent container = containerWidget.swingComponent();
 
-    int gridWidth = grid.numColumns();
-    int gridHeight = grid.numRows();
-    for (int gridY = 0; gridY < gridHeight; gridY++) {
-      for (int gridX = 0; gridX < gridWidth; gridX++) {
-        GridCell cell = grid.cellAt(gridX, gridY);
-        if (cell.isEmpty())
-          continue;
-
-        // If cell's coordinates don't match our iteration coordinates, we've
-        // already added this cell
-        if (cell.x != gridX || cell.y != gridY)
-          continue;
-
-        GridBagConstraints gc = new GridBagConstraints();
+    // The cells are stored in row-major order
+    List<GridCell> constraints = arrayList();
+    List<Integer> cellRows = arrayList();
+    List<Integer> cellEnds = arrayList();
+    for (int i = 0; i < grid.cellCount(); i++) {
+      Widget widget = (Widget) grid.cellView(i);
+      if (widget == null)
+        continue;
 
-        float weightX = cell.growX;
-        gc.weightx = weightX;
-        gc.gridx = cell.x;
-        gc.gridwidth = cell.width;
-        gc.weighty = cell.growY;
-        gc.gridy = cell.y;
-        gc.gridheight = 1;
+      GridCell gc = null;
+      JComponent component = widget.swingComponent();
+      // Padding widgets have no views
+      if (component != null) {
+        gc = grid.cell(i);
+        gc.view = null;
+        container.add(component, gc);
+      }
+      constraints.add(gc);
+      cellRows.add(grid.cellY(i));
+      cellEnds.add(grid.cellX(i) + grid.cellWidth(i));
+    }
 
-        Widget widget = (Widget) cell.view;
-        JComponent component = widget.swingComponent();
-        // Padding widgets have no views
-        if (component == null)
-          continue;
+    if (grid.planIndex() >= 0)
+      mRecordedPlans.set(grid.planIndex(),
+          new LayoutPlan.GridPlan(grid.columnSizes(), constraints.toArray(new GridCell[0]),
+              DataUtil.intArray(cellRows), DataUtil.intArray(cellEnds)));
+  }
 
-        // Not using gc.anchor
-        gc.fill = GridBagConstraints.BOTH;
+  /**
+   * Add nodes for a headless grid's views to the grid's layout node
+   */
+  private void buildLayoutNode(Grid grid) {
+    grid.propagateGrowFlags();
+    HeadlessWidget containerWidget = grid.widget();
+    LayoutNode container = containerWidget.node();
+    for (int i = 0; i < grid.cellCount(); i++) {
+      Widget widget = (Widget) grid.cellView(i);
+      if (widget == null)
+        continue;
+      LayoutNode node = layoutNode(widget);
+      node.setCell(grid, i);
+      container.addChild(node);
+    }
+  }
 
-        // Not using gravity
-        container.add(widget.swingComponent(), gc);
-      }
+  /**
+   * Add a grid's views to its container, using previously recorded geometry
+   */
+  private void assignViewsToGridLayout(Grid grid, LayoutPlan.GridPlan plan) {
+    List<Widget> views = grid.plannedViews();
+    if (views.size() != plan.viewCount())
+      badState("layout differs from plan; expected", plan.viewCount(), "views in grid:", grid.debugContext(),
+          "got", views.size());
+    JComponent container = gridComponent(grid);
+    for (int i = 0; i < views.size(); i++) {
+      GridCell gc = plan.constraints[i];
+      JComponent component = views.get(i).swingComponent();
+      if ((gc == null) != (component == null))
+        badState("layout differs from plan; view", i, "in grid:", grid.debugContext());
+      // The layout makes its own copy of the constraints
+      if (component != null)
+        container.add(component, gc);
     }
   }
 
@@ -1235,23 +2153,38 @@ public final class WidgetManager extends BaseObject {
 
     Integer mapKey = fontSize + (monospaced ? 0 : 1000);
 
-    Font f = sFontMap.get(mapKey);
-    if (f == null) {
+    int size = fontSize;
+    return sFontMap.computeIfAbsent(mapKey, (k) -> {
       if (monospaced)
-        f = new Font("Monaco", Font.PLAIN, fontSize);
-      else
-        f = new Font("Lucida Grande", Font.PLAIN, fontSize);
-      sFontMap.put(mapKey, f);
-    }
-    return f;
-  }
-
-  private static Map<Integer, Font> sFontMap = hashMap();
-
-  private SortedMap<String, Widget> mWidgetMap = treeMap();
+        return new Font("Monaco", Font.PLAIN, size);
+      return new Font("Lucida Grande", Font.PLAIN, size);
+    });
+  }
+
+  // Accessed by multiple threads, if headless managers are in use
+  private static final Map<Integer, Font> sFontMap = new ConcurrentHashMap<>();
+
+  private Map<String, Widget> mWidgetMap = hashMap();
+  // Widgets sorted by id, or null if not yet determined
+  private List<Widget> mSortedWidgets;
+  private long mVersion;
+  // Widgets keyed by the version of their most recent change
+  private TreeMap<Long, Widget> mChangedWidgets = new TreeMap<>();
+  private List<Runnable> mChangeObservers = arrayList();
+  private Map<Component, LazyTab> mLazyTabs = new LinkedHashMap<>();
+  private Set<String> mPlaceholderIds = hashSet();
+  private Map<String, LazyTab> mLazyTabIds = hashMap();
+  private int mUndeclaredLazyTabCount;
+  private LazyTab mSelectedLazyTab;
+  private LayoutPlan.GridPlan[] mReplayPlans;
+  private int mReplayCursor;
+  private List<LayoutPlan.GridPlan> mRecordedPlans;
   private boolean mActive;
+  private boolean mHeadless;
+  private LayoutNode mLayoutRoot;
 
   private WidgetListener mPendingListener;
+  private Consumer<DirtyRegions> mPendingDirtyRegionReporter;
   private Widget mListenerWidget;
 
   private JComponent mPendingContainer;
@@ -1274,6 +2207,13 @@ public final class WidgetManager extends BaseObject {
   private String mPendingLabel;
   private Boolean mPendingFloatingPoint;
   private Boolean mPendingWithDisplay;
+  private Integer mPendingRateLimit;
+  private Boolean mPendingSettledOnly;
+  private Integer mPendingDebounceMs;
   private long mLastWidgetEventTime;
   private List<WidgetListener> mListenerStack = arrayList();
+
+  private int mUpdateDepth;
+  private Set<String> mBatchedIds = new LinkedHashSet<>();
+  private Map<WidgetListener, Set<String>> mBatchedListenerIds = new LinkedHashMap<>();
 }
@@ -0,0 +1,328 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import js.json.JSList;
+import js.json.JSMap;
+
+/**
+ * Compact binary encoding of widget values, as produced by
+ * WidgetManager.readWidgetValues() and consumed by setWidgetValues()
+ *
+ * <pre>
+ *
+ * Format:
+ *
+ *    magic                   4 bytes, "WST1"
+ *    id count                varint
+ *    ids                     length-prefixed UTF-8 strings
+ *    value count             varint
+ *    values:
+ *      id index              varint
+ *      type                  1 byte (TYPE_xxx)
+ *      payload               depends upon type:
+ *        int, long           zigzag varint
+ *        float, double       4 or 8 bytes, little-endian
+ *        string, json        length-prefixed UTF-8 string
+ *        boolean             none (type is TYPE_FALSE or TYPE_TRUE)
+ *
+ * </pre>
+ *
+ * Lengths are varints. JSMap and JSList values are stored as JSON strings
+ */
+public final class WidgetStateCodec {
+
+  public static byte[] encode(JSMap values) {
+    Map<String, Object> map = values.wrappedMap();
+    Encoder e = new Encoder();
+    e.writeBytes(MAGIC);
+    e.writeVarint(map.size());
+    for (String id : map.keySet())
+      e.writeString(id);
+    e.writeVarint(map.size());
+    int idIndex = 0;
+    for (Object value : map.values()) {
+      e.writeVarint(idIndex++);
+      e.writeValue(value);
+    }
+    return e.toByteArray();
+  }
+
+  public static JSMap decode(byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Decode values from a buffer, starting at its current position
+   */
+  public static JSMap decode(ByteBuffer buffer) {
+    Decoder d = new Decoder(buffer);
+    for (int i = 0; i < MAGIC.length; i++)
+      if (d.readByte() != MAGIC[i])
+        throw badArg("not a widget state snapshot");
+    int idCount = d.readLength();
+    String[] ids = new String[idCount];
+    for (int i = 0; i < idCount; i++)
+      ids[i] = d.readString();
+    int valueCount = d.readLength();
+    JSMap m = map();
+    for (int i = 0; i < valueCount; i++) {
+      int idIndex = d.readLength();
+      if (idIndex >= idCount)
+        throw badArg("bad id index:", idIndex);
+      m.putUnsafe(ids[idIndex], d.readValue());
+    }
+    return m;
+  }
+
+  public static void write(JSMap values, File file) {
+    try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+      f.setLength(0);
+      f.write(encode(values));
+    } catch (IOException e) {
+      throw asRuntimeException(e);
+    }
+  }
+
+  /**
+   * Read values from a file, by mapping it into memory
+   */
+  public static JSMap read(File file) {
+    try (RandomAccessFile f = new RandomAccessFile(file, "r"); FileChannel channel = f.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return decode(buffer);
+    } catch (IOException e) {
+      throw asRuntimeException(e);
+    }
+  }
+
+  private static final byte[] MAGIC = { 'W', 'S', 'T', '1' };
+
+  private static final int TYPE_FALSE = 0;
+  private static final int TYPE_TRUE = 1;
+  private static final int TYPE_INT = 2;
+  private static final int TYPE_LONG = 3;
+  private static final int TYPE_FLOAT = 4;
+  private static final int TYPE_DOUBLE = 5;
+  private static final int TYPE_STRING = 6;
+  private static final int TYPE_JSMAP = 7;
+  private static final int TYPE_JSLIST = 8;
+
+  // ------------------------------------------------------------------
+  // Encoding
+  // ------------------------------------------------------------------
+
+  private static final class Encoder {
+
+    void writeValue(Object value) {
+      if (value instanceof Boolean) {
+        writeByte(((Boolean) value) ? TYPE_TRUE : TYPE_FALSE);
+      } else if (value instanceof Integer) {
+        writeByte(TYPE_INT);
+        writeVarint(zigzag((Integer) value));
+      } else if (value instanceof Long) {
+        writeByte(TYPE_LONG);
+        writeVarint(zigzag((Long) value));
+      } else if (value instanceof Float) {
+        writeByte(TYPE_FLOAT);
+        writeFixed(Float.floatToRawIntBits((Float) value), 4);
+      } else if (value instanceof Double) {
+        writeByte(TYPE_DOUBLE);
+        writeFixed(Double.doubleToRawLongBits((Double) value), 8);
+      } else if (value instanceof String) {
+        writeByte(TYPE_STRING);
+        writeString((String) value);
+      } else if (value instanceof JSMap) {
+        writeByte(TYPE_JSMAP);
+        writeString(value.toString());
+      } else if (value instanceof JSList) {
+        writeByte(TYPE_JSLIST);
+        writeString(value.toString());
+      } else
+        throw badArg("unsupported widget value:", value, value == null ? null : value.getClass());
+    }
+
+    void writeString(String s) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeVarint(bytes.length);
+      writeBytes(bytes);
+    }
+
+    void writeVarint(long value) {
+      while ((value & ~0x7fL) != 0) {
+        writeByte((int) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      writeByte((int) value);
+    }
+
+    void writeFixed(long value, int byteCount) {
+      for (int i = 0; i < byteCount; i++) {
+        writeByte((int) value);
+        value >>>= 8;
+      }
+    }
+
+    void writeBytes(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, mBytes, mSize, bytes.length);
+      mSize += bytes.length;
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      mBytes[mSize++] = (byte) b;
+    }
+
+    byte[] toByteArray() {
+      byte[] result = new byte[mSize];
+      System.arraycopy(mBytes, 0, result, 0, mSize);
+      return result;
+    }
+
+    private void ensureCapacity(int additional) {
+      int required = mSize + additional;
+      if (required > mBytes.length) {
+        byte[] newBytes = new byte[Math.max(required, mBytes.length * 2)];
+        System.arraycopy(mBytes, 0, newBytes, 0, mSize);
+        mBytes = newBytes;
+      }
+    }
+
+    private static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+
+    private byte[] mBytes = new byte[256];
+    private int mSize;
+  }
+
+  // ------------------------------------------------------------------
+  // Decoding
+  // ------------------------------------------------------------------
+
+  private static final class Decoder {
+
+    Decoder(ByteBuffer buffer) {
+      mBuffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    Object readValue() {
+      int type = readByte();
+      switch (type) {
+      case TYPE_FALSE:
+        return false;
+      case TYPE_TRUE:
+        return true;
+      case TYPE_INT:
+        return (int) unzigzag(readVarint());
+      case TYPE_LONG:
+        return unzigzag(readVarint());
+      case TYPE_FLOAT:
+        return Float.intBitsToFloat((int) readFixed(4));
+      case TYPE_DOUBLE:
+        return Double.longBitsToDouble(readFixed(8));
+      case TYPE_STRING:
+        return readString();
+      case TYPE_JSMAP:
+        return new JSMap(readString());
+      case TYPE_JSLIST:
+        return new JSList(readString());
+      default:
+        throw badArg("unsupported value type:", type);
+      }
+    }
+
+    String readString() {
+      int length = readLength();
+      if (length > mBuffer.remaining())
+        throw badArg("string length exceeds data:", length);
+      String s;
+      if (mBuffer.hasArray()) {
+        s = new String(mBuffer.array(), mBuffer.arrayOffset() + mBuffer.position(), length, StandardCharsets.UTF_8);
+        mBuffer.position(mBuffer.position() + length);
+      } else {
+        byte[] bytes = new byte[length];
+        mBuffer.get(bytes);
+        s = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return s;
+    }
+
+    /**
+     * Read a varint that represents a nonnegative int
+     */
+    int readLength() {
+      long value = readVarint();
+      if (value < 0 || value > Integer.MAX_VALUE)
+        throw badArg("bad length:", value);
+      return (int) value;
+    }
+
+    long readVarint() {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        result |= ((long) (b & 0x7f)) << shift;
+        if ((b & 0x80) == 0)
+          return result;
+      }
+      throw badArg("malformed varint");
+    }
+
+    long readFixed(int byteCount) {
+      long result = 0;
+      for (int i = 0; i < byteCount; i++)
+        result |= ((long) readByte()) << (i * 8);
+      return result;
+    }
+
+    int readByte() {
+      if (!mBuffer.hasRemaining())
+        throw badArg("unexpected end of data");
+      return mBuffer.get() & 0xff;
+    }
+
+    private static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private final ByteBuffer mBuffer;
+  }
+
+}
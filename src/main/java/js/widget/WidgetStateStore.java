@@ -0,0 +1,283 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Jeff Sember
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ **/
+package js.widget;
+
+import static js.base.Tools.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.swing.Timer;
+
+import js.base.BaseObject;
+import js.json.JSMap;
+
+/**
+ * Persists the values of a WidgetManager's widgets to a file.
+ * <p>
+ * Changes to the widgets are debounced; once they have stopped for a while,
+ * the values are snapshotted on the Swing event thread, and written to disk by
+ * a background thread. Only the widgets that changed since the previous
+ * snapshot are read.
+ * <p>
+ * Each snapshot is written to a temporary file, which is then renamed over the
+ * previous snapshot (which is itself retained with a ".prev" suffix). Each
+ * snapshot includes a checksum, so restore() can fall back to an older one if
+ * the newest is damaged
+ *
+ * <pre>
+ *
+ * Usage (on the Swing event thread):
+ *
+ *    WidgetStateStore store = new WidgetStateStore(widgets, file);
+ *    store.restore();
+ *    store.start();
+ *       ...
+ *    store.stop();     // e.g. when app exits; writes any pending changes
+ *
+ * </pre>
+ */
+public final class WidgetStateStore extends BaseObject {
+
+  public static final int DEFAULT_DEBOUNCE_MS = 500;
+
+  public WidgetStateStore(WidgetManager manager, File file) {
+    mManager = checkNotNull(manager);
+    mFile = checkNotNull(file);
+  }
+
+  public WidgetStateStore setDebounceMs(int debounceMs) {
+    checkState(mTimer == null, "already started");
+    checkArgument(debounceMs >= 0, "bad debounce:", debounceMs);
+    mDebounceMs = debounceMs;
+    return this;
+  }
+
+  public File file() {
+    return mFile;
+  }
+
+  /**
+   * Start watching for widget changes. The store can be restarted after it has
+   * been stopped
+   */
+  public void start() {
+    checkState(mTimer == null, "already started");
+    mWriter = Executors.newSingleThreadExecutor((r) -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setDaemon(true);
+      return t;
+    });
+    mTimer = new Timer(mDebounceMs, (e) -> saveSnapshot());
+    mTimer.setRepeats(false);
+    mManager.addChangeObserver(mChangeObserver);
+  }
+
+  /**
+   * Stop watching for widget changes, write any pending changes, and wait for
+   * all writes to complete
+   */
+  public void stop() {
+    if (mTimer == null)
+      return;
+    mManager.removeChangeObserver(mChangeObserver);
+    mTimer.stop();
+    mTimer = null;
+    flush();
+    ExecutorService writer = mWriter;
+    mWriter = null;
+    writer.shutdown();
+    try {
+      writer.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Write any pending changes, and wait for the write to complete
+   */
+  public void flush() {
+    Future<?> f = saveSnapshot();
+    if (f == null)
+      return;
+    try {
+      f.get();
+    } catch (Exception e) {
+      throw asRuntimeException(e);
+    }
+  }
+
+  /**
+   * Restore the widget values from the newest valid snapshot, if one exists
+   *
+   * @return true if values were restored
+   */
+  public boolean restore() {
+    for (File f : candidateFiles()) {
+      JSMap values = readSnapshot(f);
+      if (values == null)
+        continue;
+      log("restoring widget state from:", f);
+      mManager.setWidgetValues(values);
+      return true;
+    }
+    return false;
+  }
+
+  private void changeObserved() {
+    if (mTimer != null)
+      mTimer.restart();
+  }
+
+  // ------------------------------------------------------------------
+  // Snapshots
+  // ------------------------------------------------------------------
+
+  /**
+   * Take a snapshot of the widget values, if they have changed since the
+   * previous one, and submit it to be written (or, if the store hasn't been
+   * started, write it immediately)
+   *
+   * @return Future for the write, or null if nothing has changed or it has
+   *         already been written
+   */
+  private Future<?> saveSnapshot() {
+    long version = mManager.version();
+    if (version == mSnapshotVersion)
+      return null;
+    JSMap delta = mManager.readChangedWidgetValues(mSnapshotVersion);
+    mSnapshotVersion = version;
+    Map<String, Object> snapshot = mSnapshot.wrappedMap();
+    snapshot.putAll(delta.wrappedMap());
+
+    // Give the writer its own copy, since we will continue to modify ours
+    JSMap copy = map();
+    copy.wrappedMap().putAll(snapshot);
+    if (mWriter == null) {
+      writeSnapshot(copy);
+      return null;
+    }
+    return mWriter.submit(() -> writeSnapshot(copy));
+  }
+
+  private void writeSnapshot(JSMap values) {
+    byte[] encoded = WidgetStateCodec.encode(values);
+    CRC32 crc = new CRC32();
+    crc.update(encoded, 0, encoded.length);
+    ByteBuffer buffer = ByteBuffer.allocate(encoded.length + CRC_BYTES);
+    buffer.put(encoded);
+    buffer.putInt((int) crc.getValue());
+    buffer.flip();
+
+    File tempFile = siblingFile(TEMP_SUFFIX);
+    try {
+      try (FileChannel ch = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining())
+          ch.write(buffer);
+        ch.force(true);
+      }
+      if (mFile.exists())
+        Files.move(mFile.toPath(), siblingFile(PREVIOUS_SUFFIX).toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      Files.move(tempFile.toPath(), mFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      log("wrote widget state snapshot;", encoded.length, "bytes");
+    } catch (IOException e) {
+      pr("*** Failed to write widget state to:", mFile, INDENT, e);
+    }
+  }
+
+  /**
+   * Read a snapshot from a file
+   *
+   * @return values, or null if the file doesn't exist or is damaged
+   */
+  private JSMap readSnapshot(File file) {
+    if (!file.exists())
+      return null;
+    try {
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      int length = bytes.length - CRC_BYTES;
+      if (length < 0)
+        return null;
+      CRC32 crc = new CRC32();
+      crc.update(bytes, 0, length);
+      if (ByteBuffer.wrap(bytes, length, CRC_BYTES).getInt() != (int) crc.getValue()) {
+        pr("*** Checksum mismatch in widget state:", file);
+        return null;
+      }
+      return WidgetStateCodec.decode(ByteBuffer.wrap(bytes, 0, length));
+    } catch (IOException | IllegalArgumentException e) {
+      pr("*** Failed to read widget state from:", file, INDENT, e);
+      return null;
+    }
+  }
+
+  /**
+   * Get the files that may contain snapshots, newest first. This includes the
+   * temporary file, in case we crashed after writing it but before renaming
+   * it
+   */
+  private List<File> candidateFiles() {
+    List<File> files = arrayList();
+    files.add(siblingFile(TEMP_SUFFIX));
+    files.add(mFile);
+    files.add(siblingFile(PREVIOUS_SUFFIX));
+    files.sort((a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+    return files;
+  }
+
+  private File siblingFile(String suffix) {
+    return new File(mFile.getPath() + suffix);
+  }
+
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String PREVIOUS_SUFFIX = ".prev";
+  private static final int CRC_BYTES = 4;
+
+  private final WidgetManager mManager;
+  private final File mFile;
+  private final Runnable mChangeObserver = () -> changeObserved();
+  // Exists only while started
+  private ExecutorService mWriter;
+  private int mDebounceMs = DEFAULT_DEBOUNCE_MS;
+  private Timer mTimer;
+  // The values most recently submitted to be written, and the version they reflect
+  private final JSMap mSnapshot = map();
+  private long mSnapshotVersion;
+}
@@ -0,0 +1,239 @@
+package js.widget;
+
+import static org.junit.Assert.*;
+
+import java.awt.Component;
+import java.awt.ComponentOrientation;
+import java.awt.Dimension;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.util.Random;
+
+import javax.swing.BorderFactory;
+import javax.swing.JPanel;
+
+import org.junit.Test;
+
+import js.testutil.MyTestCase;
+
+/**
+ * Verifies that GridCellLayout produces the same results as GridBagLayout
+ */
+public class GridCellLayoutTest extends MyTestCase {
+
+  @Test
+  public void singleComponent() {
+    Corpus c = new Corpus(1);
+    c.add(0, 0, 1, 0, 0, 50, 20);
+    c.verify();
+  }
+
+  @Test
+  public void growingColumn() {
+    Corpus c = new Corpus(3);
+    c.add(0, 0, 1, 0, 0, 40, 20);
+    c.add(1, 0, 1, 100, 0, 60, 25);
+    c.add(2, 0, 1, 0, 0, 30, 15);
+    c.add(0, 1, 3, 0, 100, 200, 50);
+    c.verify();
+  }
+
+  @Test
+  public void spanningWeights() {
+    Corpus c = new Corpus(4);
+    c.add(0, 0, 2, 100, 0, 173, 20);
+    c.add(2, 0, 2, 30, 0, 17, 21);
+    c.add(0, 1, 1, 0, 0, 10, 10);
+    c.add(1, 1, 3, 250, 40, 301, 33);
+    c.add(0, 2, 4, 0, 0, 9, 9);
+    c.verify();
+  }
+
+  @Test
+  public void invisibleComponents() {
+    Corpus c = new Corpus(2);
+    c.add(0, 0, 1, 0, 0, 40, 20);
+    c.add(1, 0, 1, 100, 0, 60, 25).setVisible(false);
+    c.add(0, 1, 2, 0, 100, 80, 50);
+    c.verify();
+  }
+
+  @Test
+  public void rightToLeft() {
+    Corpus c = new Corpus(3);
+    c.add(0, 0, 1, 0, 0, 40, 20);
+    c.add(1, 0, 2, 100, 0, 60, 25);
+    c.add(0, 1, 3, 0, 100, 70, 50);
+    c.setOrientation(ComponentOrientation.RIGHT_TO_LEFT);
+    c.verify();
+  }
+
+  @Test
+  public void randomCorpus() {
+    Random r = new Random(1965);
+    for (int trial = 0; trial < 300; trial++) {
+      Corpus c = randomCorpus(r);
+      c.verify();
+    }
+  }
+
+  @Test
+  public void incrementalSizeChanges() {
+    Random r = new Random(42);
+    for (int trial = 0; trial < 100; trial++) {
+      Corpus c = randomCorpus(r);
+      c.verify();
+      for (int step = 0; step < 5; step++) {
+        int index = r.nextInt(c.size());
+        c.setSizes(index, r.nextInt(120), r.nextInt(60), r.nextInt(60), r.nextInt(30));
+        if (r.nextInt(5) == 0)
+          c.setVisible(r.nextInt(c.size()), r.nextBoolean());
+        c.verify();
+      }
+    }
+  }
+
+  private static Corpus randomCorpus(Random r) {
+    int numCols = 1 + r.nextInt(6);
+    Corpus c = new Corpus(numCols);
+    int numRows = 1 + r.nextInt(6);
+    for (int y = 0; y < numRows; y++) {
+      int x = 0;
+      while (x < numCols) {
+        int width = 1 + r.nextInt(numCols - x);
+        if (r.nextInt(3) != 0)
+          width = 1;
+        int growX = r.nextInt(3) == 0 ? r.nextInt(300) : 0;
+        int growY = r.nextInt(4) == 0 ? r.nextInt(200) : 0;
+        Component comp = c.add(x, y, width, growX, growY, r.nextInt(150), r.nextInt(50));
+        comp.setMinimumSize(new Dimension(r.nextInt(40), r.nextInt(20)));
+        if (r.nextInt(10) == 0)
+          comp.setVisible(false);
+        x += width;
+      }
+    }
+    if (r.nextBoolean())
+      c.setBorder(r.nextInt(10), r.nextInt(10), r.nextInt(10), r.nextInt(10));
+    return c;
+  }
+
+  /**
+   * A pair of containers with identical contents, one using GridBagLayout and
+   * the other GridCellLayout
+   */
+  private static class Corpus {
+
+    Corpus(int numColumns) {
+      mNumColumns = numColumns;
+      mExpected = new JPanel(new GridBagLayout());
+      mActual = new JPanel(new GridCellLayout());
+    }
+
+    int size() {
+      return mExpected.getComponentCount();
+    }
+
+    Component add(int x, int y, int width, int growX, int growY, int prefWidth, int prefHeight) {
+      assertTrue(x + width <= mNumColumns);
+      GridCell cell = new GridCell();
+      cell.x = x;
+      cell.y = y;
+      cell.width = width;
+      cell.growX = growX;
+      cell.growY = growY;
+
+      GridBagConstraints gc = new GridBagConstraints();
+      gc.gridx = x;
+      gc.gridy = y;
+      gc.gridwidth = width;
+      gc.gridheight = 1;
+      gc.weightx = growX;
+      gc.weighty = growY;
+      gc.fill = GridBagConstraints.BOTH;
+
+      JPanel expected = new JPanel();
+      JPanel actual = new JPanel();
+      mExpected.add(expected, gc);
+      mActual.add(actual, cell);
+      setSizes(size() - 1, prefWidth, prefHeight, Math.min(prefWidth, 20), Math.min(prefHeight, 10));
+      return new ComponentPair(expected, actual);
+    }
+
+    void setSizes(int index, int prefWidth, int prefHeight, int minWidth, int minHeight) {
+      for (JPanel p : panels()) {
+        Component c = p.getComponent(index);
+        c.setPreferredSize(new Dimension(prefWidth, prefHeight));
+        c.setMinimumSize(new Dimension(minWidth, minHeight));
+      }
+    }
+
+    void setVisible(int index, boolean visible) {
+      for (JPanel p : panels())
+        p.getComponent(index).setVisible(visible);
+    }
+
+    void setBorder(int top, int left, int bottom, int right) {
+      for (JPanel p : panels())
+        p.setBorder(BorderFactory.createEmptyBorder(top, left, bottom, right));
+    }
+
+    void setOrientation(ComponentOrientation orientation) {
+      for (JPanel p : panels())
+        p.setComponentOrientation(orientation);
+    }
+
+    void verify() {
+      Dimension pref = mExpected.getPreferredSize();
+      assertEquals("preferred size", pref, mActual.getPreferredSize());
+      Dimension min = mExpected.getMinimumSize();
+      assertEquals("minimum size", min, mActual.getMinimumSize());
+
+      // Lay out at a variety of sizes: smaller than the minimum, between the
+      // minimum and preferred, exactly the preferred, and larger
+      int[][] sizes = { { pref.width, pref.height }, { min.width / 2, min.height / 2 },
+          { (min.width + pref.width) / 2, (min.height + pref.height) / 2 }, { pref.width + 137, pref.height + 61 },
+          { pref.width * 3, pref.height / 2 }, { 0, 0 }, };
+      for (int[] size : sizes) {
+        for (JPanel p : panels()) {
+          p.setSize(size[0], size[1]);
+          p.doLayout();
+        }
+        for (int i = 0; i < size(); i++)
+          assertEquals("bounds of component " + i + " in " + size[0] + " x " + size[1],
+              mExpected.getComponent(i).getBounds(), mActual.getComponent(i).getBounds());
+      }
+    }
+
+    private JPanel[] panels() {
+      return new JPanel[] { mExpected, mActual };
+    }
+
+    private final int mNumColumns;
+    private final JPanel mExpected;
+    private final JPanel mActual;
+  }
+
+  /**
+   * Lets callers modify both versions of a component at once
+   */
+  private static class ComponentPair extends Component {
+    ComponentPair(Component a, Component b) {
+      mA = a;
+      mB = b;
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+      mA.setVisible(visible);
+      mB.setVisible(visible);
+    }
+
+    @Override
+    public void setMinimumSize(Dimension d) {
+      mA.setMinimumSize(d);
+      mB.setMinimumSize(d);
+    }
+
+    private final Component mA, mB;
+  }
+}
@@ -0,0 +1,110 @@
+package js.widget;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import js.testutil.MyTestCase;
+
+public class NumericStepperTest extends MyTestCase {
+
+  @Test
+  public void intRanges() {
+    verifyInts(0, 100);
+    verifyInts(-5, 5);
+    verifyInts(-1000, 1000);
+    verifyInts(-99999, -50000);
+    verifyInts(0, 250000);
+  }
+
+  @Test
+  public void intExtremes() {
+    NumericStepper s = new NumericStepper(false, 0, -1000000000, 1000000000, 1);
+    for (int v : new int[] { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1, 0, 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE })
+      verify(s, v);
+    Random r = new Random(1965);
+    for (int i = 0; i < 100000; i++)
+      verify(s, r.nextInt());
+  }
+
+  @Test
+  public void intValuesOutsideRange() {
+    NumericStepper s = new NumericStepper(false, 0, 0, 10, 1);
+    for (int v = -20000; v <= 20000; v++)
+      verify(s, v);
+  }
+
+  @Test
+  public void floatInternalUnits() {
+    float[][] ranges = { { 0, 1 }, { -1, 1 }, { 0, 10 }, { -5, 5 }, { -20, 30 }, { 0, 100 }, { -999, 999 },
+        { 0.25f, 0.75f }, { 0, 1e6f } };
+    for (float[] range : ranges) {
+      NumericStepper s = new NumericStepper(true, null, range[0], range[1], null);
+      for (int i = s.internalMin(); i <= s.internalMax(); i++)
+        verify(s, s.fromInternalUnits(i));
+    }
+  }
+
+  @Test
+  public void floatSweep() {
+    NumericStepper s = new NumericStepper(true, null, -10f, 10f, null);
+    for (int i = -1000000; i <= 1000000; i++)
+      verify(s, i * 0.00001f);
+    // Ties (exactly representable), and values that round to zero
+    for (float v : new float[] { 0.125f, -0.125f, 0.375f, 2.5f, -2.5f, 0.005f, -0.005f, 0.001f, -0.001f,
+        0f, -0f, 1e-30f, -1e-30f })
+      verify(s, v);
+  }
+
+  @Test
+  public void floatExtremes() {
+    NumericStepper s = new NumericStepper(true, null, 0f, 5f, null);
+    for (float v : new float[] { Float.MAX_VALUE, -Float.MAX_VALUE, Float.MIN_VALUE, 1e15f, -1e15f, 4.5e15f,
+        Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY })
+      verify(s, v);
+    Random r = new Random(1965);
+    for (int i = 0; i < 100000; i++)
+      verify(s, Float.intBitsToFloat(r.nextInt()));
+  }
+
+  @Test
+  public void otherLocales() {
+    Locale original = Locale.getDefault(Locale.Category.FORMAT);
+    try {
+      for (Locale locale : new Locale[] { Locale.GERMANY, Locale.forLanguageTag("th-TH-u-nu-thai"),
+          Locale.forLanguageTag("ar-EG") }) {
+        Locale.setDefault(Locale.Category.FORMAT, locale);
+        verifyInts(-1000, 1000);
+        NumericStepper s = new NumericStepper(true, null, -10f, 10f, null);
+        for (int i = -20000; i <= 20000; i++)
+          verify(s, i * 0.001f);
+      }
+    } finally {
+      Locale.setDefault(Locale.Category.FORMAT, original);
+    }
+  }
+
+  @Test
+  public void otherNumberTypes() {
+    NumericStepper s = new NumericStepper(false, 0, -100, 100, 1);
+    verify(s, 42L);
+    verify(s, (short) -7);
+    verify(s, (byte) 3);
+    NumericStepper f = new NumericStepper(true, null, -1f, 1f, null);
+    verify(f, 0.125);
+    verify(f, -0.3333);
+  }
+
+  private void verifyInts(int min, int max) {
+    NumericStepper s = new NumericStepper(false, min, min, max, 1);
+    for (int v = min; v <= max; v++)
+      verify(s, v);
+  }
+
+  private void verify(NumericStepper s, Number value) {
+    assertEquals("value: " + value, String.format(s.formatString(), value), s.formatNumber(value));
+  }
+}
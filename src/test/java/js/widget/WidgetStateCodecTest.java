@@ -0,0 +1,112 @@
+package js.widget;
+
+import static js.base.Tools.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import js.json.JSMap;
+import js.testutil.MyTestCase;
+
+public class WidgetStateCodecTest extends MyTestCase {
+
+  @Test
+  public void roundTripEmpty() {
+    roundTrip(map());
+  }
+
+  @Test
+  public void roundTripValueTypes() {
+    JSMap m = map();
+    m.putUnsafe("bool_false", false);
+    m.putUnsafe("bool_true", true);
+    m.putUnsafe("int_zero", 0);
+    m.putUnsafe("int_neg", -1);
+    m.putUnsafe("int_min", Integer.MIN_VALUE);
+    m.putUnsafe("int_max", Integer.MAX_VALUE);
+    m.putUnsafe("long_min", Long.MIN_VALUE);
+    m.putUnsafe("long_max", Long.MAX_VALUE);
+    m.putUnsafe("float", 3.25f);
+    m.putUnsafe("float_nan", Float.NaN);
+    m.putUnsafe("double", -1e300);
+    m.putUnsafe("string", "hello");
+    m.putUnsafe("string_empty", "");
+    m.putUnsafe("string_unicode", "\u00e9t\u00e9 \u2603");
+    roundTrip(m);
+  }
+
+  @Test
+  public void roundTripManyWidgets() {
+    JSMap m = map();
+    for (int i = 0; i < 3000; i++) {
+      String id = "widget_" + i;
+      switch (i % 4) {
+      case 0:
+        m.putUnsafe(id, i * 37 - 5000);
+        break;
+      case 1:
+        m.putUnsafe(id, i / 7.0f);
+        break;
+      case 2:
+        m.putUnsafe(id, (i & 8) != 0);
+        break;
+      default:
+        m.putUnsafe(id, "value " + i);
+        break;
+      }
+    }
+    roundTrip(m);
+  }
+
+  @Test
+  public void directBuffer() {
+    JSMap m = map();
+    m.putUnsafe("alpha", "abc");
+    m.putUnsafe("beta", 42);
+    byte[] bytes = WidgetStateCodec.encode(m);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    assertEquals(m, WidgetStateCodec.decode(buffer));
+  }
+
+  @Test
+  public void readMappedFile() throws Exception {
+    JSMap m = map();
+    m.putUnsafe("x", 17);
+    m.putUnsafe("y", "why");
+    File file = File.createTempFile("widget_state", ".bin");
+    try {
+      WidgetStateCodec.write(m, file);
+      assertEquals(m, WidgetStateCodec.read(file));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void badMagic() {
+    WidgetStateCodec.decode(new byte[] { 'J', 'S', 'O', 'N', 0, 0 });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncated() {
+    JSMap m = map();
+    m.putUnsafe("name", "truncated string");
+    byte[] bytes = WidgetStateCodec.encode(m);
+    byte[] shorter = new byte[bytes.length - 3];
+    System.arraycopy(bytes, 0, shorter, 0, shorter.length);
+    WidgetStateCodec.decode(shorter);
+  }
+
+  private void roundTrip(JSMap m) {
+    JSMap decoded = WidgetStateCodec.decode(WidgetStateCodec.encode(m));
+    assertEquals(m, decoded);
+    // Verify that the value types are preserved as well
+    for (String key : m.wrappedMap().keySet())
+      assertEquals(key, m.wrappedMap().get(key).getClass(), decoded.wrappedMap().get(key).getClass());
+  }
+}